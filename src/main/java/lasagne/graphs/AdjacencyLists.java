@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+/*
+ * This class abstracts the way in which the adjacency (or incidency) lists of
+ * a graph are stored. The lists are scanned by means of a cursor: the cursor is
+ * first moved to a node and then returns, one after the other, the heads of the
+ * edges in the list of that node together with their weights. Cursors are not
+ * thread safe, but any number of them can scan the same lists at the same
+ * time.
+ */
+public abstract class AdjacencyLists {
+	public abstract class Cursor {
+		/*
+		 * Return the weight of the edge whose head has been returned by the
+		 * last invocation of nextHead (1 if the lists are not weighted).
+		 */
+		public abstract int getWeight();
+
+		public abstract boolean hasNext();
+
+		/*
+		 * Position the cursor before the first edge in the list of node u.
+		 */
+		public abstract void moveTo(int u);
+
+		public abstract int nextHead();
+	}
+
+	public abstract int getDegree(int u);
+
+	/*
+	 * Return the total number of edges stored in the lists.
+	 */
+	public abstract long getEdges();
+
+	public abstract int getN();
+
+	public abstract boolean isWeighted();
+
+	public abstract Cursor newCursor();
+}
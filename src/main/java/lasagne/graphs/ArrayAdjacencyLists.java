@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+
+/*
+ * This class implements the adjacency (or incidency) lists of a graph in
+ * compressed sparse row form: the heads of all the edges are stored in one
+ * array, in which the list of node u occupies the positions from offsets[u]
+ * (included) to offsets[u + 1] (excluded). If the graph is weighted, the
+ * weights are stored in a parallel array. Differently from an array of edge
+ * objects per node, this layout requires four (or eight) bytes per edge and
+ * allows a visit to scan the lists sequentially. Since the positions are int
+ * values, the lists can contain at most MAX_EDGES edges.
+ */
+public class ArrayAdjacencyLists extends WritableAdjacencyLists {
+	class ArrayCursor extends Cursor {
+		private int position;
+		private int end;
+
+		public int getWeight() {
+			if (weights == null) {
+				return 1;
+			}
+			return weights[position - 1];
+		}
+
+		public boolean hasNext() {
+			return position < end;
+		}
+
+		public void moveTo(int u) {
+			position = offsets[u];
+			end = offsets[u + 1];
+		}
+
+		public int nextHead() {
+			return heads[position++];
+		}
+	}
+
+	// The maximum number of elements of a Java array on most virtual machines
+	static final int MAX_EDGES = Integer.MAX_VALUE - 8;
+
+	private int[] offsets;
+	private int[] heads;
+	private int[] weights;
+	// This field is used only while the lists are being filled: it contains,
+	// for each node, the position in which the next edge has to be stored
+	private int[] next;
+
+	/*
+	 * Create the lists of n nodes whose lengths are given by the degree array.
+	 * The lists are then filled by means of the add method.
+	 */
+	public ArrayAdjacencyLists(int[] degree, boolean isWeighted) {
+		int n = degree.length;
+		offsets = new int[n + 1];
+		long size = 0;
+		for (int u = 0; u < n; u++) {
+			size = size + degree[u];
+			if (size > MAX_EDGES) {
+				throw new IllegalArgumentException("More than " + MAX_EDGES
+						+ " edges cannot be stored into arrays");
+			}
+			offsets[u + 1] = (int) size;
+		}
+		heads = new int[offsets[n]];
+		if (isWeighted) {
+			weights = new int[offsets[n]];
+		}
+		next = new int[n];
+		System.arraycopy(offsets, 0, next, 0, n);
+	}
+
+	public void add(int u, int h, int w) throws IOException {
+		int p = next[u];
+		if (p == offsets[u + 1]) {
+			throw new IOException("Node " + u
+					+ " has more edges than its declared degree");
+		}
+		heads[p] = h;
+		if (weights != null) {
+			weights[p] = w;
+		}
+		next[u] = p + 1;
+	}
+
+	public void close() {
+		int n = next.length;
+		boolean full = true;
+		for (int u = 0; u < n && full; u++) {
+			full = next[u] == offsets[u + 1];
+		}
+		if (!full) {
+			int p = 0;
+			for (int u = 0; u < n; u++) {
+				int start = offsets[u];
+				offsets[u] = p;
+				for (int j = start; j < next[u]; j++) {
+					heads[p] = heads[j];
+					if (weights != null) {
+						weights[p] = weights[j];
+					}
+					p = p + 1;
+				}
+			}
+			offsets[n] = p;
+			int[] h = new int[p];
+			System.arraycopy(heads, 0, h, 0, p);
+			heads = h;
+			if (weights != null) {
+				int[] w = new int[p];
+				System.arraycopy(weights, 0, w, 0, p);
+				weights = w;
+			}
+		}
+		next = null;
+	}
+
+	public int getDegree(int u) {
+		return offsets[u + 1] - offsets[u];
+	}
+
+	public long getEdges() {
+		return offsets[offsets.length - 1];
+	}
+
+	public int getN() {
+		return offsets.length - 1;
+	}
+
+	long getOffset(int u) {
+		return offsets[u];
+	}
+
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	public Cursor newCursor() {
+		return new ArrayCursor();
+	}
+
+	void set(long p, int h, int w) {
+		heads[(int) p] = h;
+		if (weights != null) {
+			weights[(int) p] = w;
+		}
+	}
+
+	void setNext(int u, long p) {
+		next[u] = (int) p;
+	}
+}
@@ -30,17 +30,15 @@
 
 package lasagne.graphs;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.Arrays;
 import java.util.Stack;
-import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
 
 import lasagne.gui.Lasagne;
 import lasagne.utilities.ErrorMessage;
@@ -48,117 +46,44 @@ import lasagne.utilities.PairArray;
 
 /*
  * This class implements the graph data structure by means of adjacency and
- * incidency lists. Each list is implemented as an array: for this reason, the
- * graph file format specifies for each node its in-degree and its out-degree.
- * The graph can be weighted: for this reason, each edge includes both its head
- * and its weight.
+ * incidency lists. The lists are stored in compressed sparse row form (see
+ * ArrayAdjacencyLists): for this reason, the graph file format specifies for
+ * each node its in-degree and its out-degree. The graph can be weighted: for
+ * this reason, each edge includes both its head and its weight. Graphs with
+ * more edges than the elements of a Java array are stored outside the heap
+ * (see OffHeapAdjacencyLists). The incidency lists of a directed graph read
+ * from a text file are computed only when a method needs them (see
+ * getIncidencyLists), so that forward-only computations require half of the
+ * memory.
  */
 public class ArrayGraph {
-	class Edge {
-		int head;
-		int weight;
+	// The parameters of the direction-optimizing BFS: a level is computed
+	// bottom-up if the edges leaving the frontier are more than 1/ALPHA of the
+	// edges leaving the unvisited nodes (and 1/BETA of the nodes), and until
+	// the frontier shrinks below 1/BETA of the nodes
+	static final int ALPHA = 14;
+	static final int BETA = 24;
+	// The weighted visits use the buckets of Dial instead of a heap if no
+	// edge weighs more than this value
+	private static final int DIAL_MAX_WEIGHT = 1 << 10;
 
-		Edge(int h, int w) {
-			head = h;
-			weight = w;
-		}
-	}
-
-	public class Element {
-		public int id;
-		public int weight;
-	}
-
-	/*
-	 * This class is used by the Dijkstra algorithm implementation (see
-	 * Crescenzi, Gambosi, Grossi, 'Strutture di Dati e Algoritmi')
-	 */
-	public class Heap {
-		int heapSize;
-		Element[] heapArray;
-		int[] heapArrayPosition;
-
-		public Heap(int n) {
-			heapArray = new Element[n];
-			heapSize = 0;
-			heapArrayPosition = new int[n];
-		}
-
-		public void decreaseKey(int id, int weight) {
-			int i = heapArrayPosition[id];
-			heapArray[i].weight = weight;
-			heapify(i);
-		}
-
-		public boolean isEmpty() {
-			return heapSize == 0;
-		}
-
-		public void enqueue(Element e) {
-			heapArray[heapSize] = e;
-			heapArrayPosition[e.id] = heapSize;
-			heapSize = heapSize + 1;
-			heapify(heapSize - 1);
-		}
-
-		public Element dequeue() {
-			Element minimum = heapArray[0];
-			heapArray[0] = heapArray[heapSize - 1];
-			heapSize = heapSize - 1;
-			heapify(0);
-			return minimum;
-		}
-
-		private void heapify(int i) {
-			while (i > 0 && heapArray[i].weight < heapArray[father(i)].weight) {
-				swap(i, father(i));
-				i = father(i);
-			}
-			while (left(i) < heapSize && i != minimumFatherSons(i)) {
-				int son = minimumFatherSons(i);
-				swap(i, son);
-				i = son;
-			}
-		}
-
-		private int minimumFatherSons(int i) {
-			int j = left(i);
-			int k = j;
-			if (k + 1 < heapSize) {
-				k = k + 1;
-			}
-			if (heapArray[k].weight < heapArray[j].weight) {
-				j = k;
-			}
-			if (heapArray[i].weight < heapArray[j].weight) {
-				j = i;
-			}
-			return j;
-		}
-
-		private int left(int i) {
-			return 2 * i + 1;
-		}
-
-		private int father(int i) {
-			return (i - 1) / 2;
-		}
-
-		private void swap(int i, int j) {
-			Element tmp = heapArray[i];
-			heapArray[i] = heapArray[j];
-			heapArray[j] = tmp;
-			heapArrayPosition[heapArray[i].id] = i;
-			heapArrayPosition[heapArray[j].id] = j;
-		}
-	}
-
-	public Edge[][] adjacencyLists;
-	public Edge[][] incidencyLists;
+	private AdjacencyLists adjacencyLists;
+	// This field is accessed by means of getIncidencyLists, since the lists
+	// are computed lazily (possibly, by a visit running in another thread)
+	private volatile AdjacencyLists incidencyLists;
 	private int n;
-	private int m;
+	private long m;
 	private boolean isOriented;
 	private boolean isWeighted;
+	private boolean isOffHeap;
+	// The maximum weight of an edge (-1 if it has not been computed yet)
+	private volatile int maxWeight = -1;
+	// The number of threads used by the visits, and the pool executing them
+	private int threads = 1;
+	private ForkJoinPool pool;
+	// If the graph has been imported from a file whose node identifiers are
+	// not contiguous, this array contains the identifier of each node
+	private int[] labels;
 	// These fields are used by some of the class methods for computing
 	// topological properties of the graph
 	private int[] component;
@@ -176,74 +101,72 @@ public class ArrayGraph {
 		m = 0;
 	}
 
-	private PairArray backwardBFS(int s) {
-		try {
-			Lasagne.logger.info("Starting backward visit from " + s + "...");
-			Queue<Integer> queue = new LinkedList<Integer>();
-			int[] dist = new int[n];
-			int[] pred = new int[n];
-			for (int i = 0; i < n; i++) {
-				dist[i] = -1;
-			}
-			int ecc = 0;
-			queue.add(s);
-			dist[s] = 0;
-			pred[s] = -1;
-			while (!queue.isEmpty()) {
-				int u = queue.poll();
-				for (int j = 1; j <= incidencyLists[u][0].weight; j++) {
-					int v = incidencyLists[u][j].head;
-					if (dist[v] == -1) {
-						dist[v] = dist[u] + 1;
-						pred[v] = u;
-						ecc = Math.max(ecc, dist[v]);
-						queue.add(v);
-					}
-				}
-			}
-			return new PairArray(dist, pred);
-		} catch (Exception e) {
-			StringWriter sw = new StringWriter();
-			PrintWriter pw = new PrintWriter(sw);
-			e.printStackTrace(pw);
-			Lasagne.logger
-					.info("======= Java Exception: if you want you can report it\n"
-							+ sw + "=======");
-			return null;
+	/*
+	 * Create an undirected graph with the given adjacency lists and node
+	 * labels (this constructor is used to build the graphs derived from
+	 * another graph, such as its kernel).
+	 */
+	ArrayGraph(AdjacencyLists adjacencyLists, long m, int[] labels) {
+		this.adjacencyLists = adjacencyLists;
+		this.n = adjacencyLists.getN();
+		this.m = m;
+		this.labels = labels;
+		isOriented = false;
+		isWeighted = adjacencyLists.isWeighted();
+	}
+
+	/*
+	 * Return the backward eccentricity of s, that is, the distance from s of
+	 * the farthest node which reaches s (see eccentricity(int)).
+	 */
+	public int backwardEccentricity(int s) {
+		return backwardEccentricity(s, new VisitWorkspace(n));
+	}
+
+	/*
+	 * Return the backward eccentricity of s, computed by means of the
+	 * workspace (see eccentricity(int, VisitWorkspace)).
+	 */
+	public int backwardEccentricity(int s, VisitWorkspace ws) {
+		return backwardEccentricity(s, ws, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * Return the backward eccentricity of s if it is smaller than bound (see
+	 * eccentricity(int, VisitWorkspace, int)).
+	 */
+	public int backwardEccentricity(int s, VisitWorkspace ws, int bound) {
+		return backwardEccentricity(s, ws, bound, threads);
+	}
+
+	/*
+	 * Return the backward eccentricity of s if it is smaller than bound, by
+	 * means of the given number of threads (see eccentricity(int,
+	 * VisitWorkspace, int, int)).
+	 */
+	public int backwardEccentricity(int s, VisitWorkspace ws, int bound,
+			int threads) {
+		checkWorkspace(ws);
+		if (isWeighted) {
+			shortestPaths(s, getIncidencyLists(), ws, bound);
+		} else if (threads > 1) {
+			backwardVisit(s, ws, threads);
+		} else {
+			directionOptimizingBFS(s, getIncidencyLists(), adjacencyLists, ws,
+					false, bound);
 		}
+		return ws.getEccentricity();
 	}
 
-	private PairArray backwardDijkstra(int s) {
+	/*
+	 * Execute a visit from s which follows the edges backward (see visit).
+	 */
+	public PairArray backwardVisit(int s) {
 		try {
-			Heap pq = new Heap(n);
-			int[] dist = new int[n];
-			int[] pred = new int[n];
-			for (int u = 0; u < n; u = u + 1) {
-				dist[u] = Integer.MAX_VALUE;
-				pred[u] = -1;
-			}
-			dist[s] = 0;
-			pred[s] = s;
-			for (int i = 0; i < n; i = i + 1) {
-				Element e = new Element();
-				e.id = i;
-				e.weight = dist[i];
-				pq.enqueue(e);
-			}
-			while (!pq.isEmpty()) {
-				Element e = pq.dequeue();
-				int v = e.id;
-				for (int j = 1; j <= incidencyLists[v][0].weight; j++) {
-					int u = incidencyLists[v][j].head;
-					int w = incidencyLists[v][j].weight;
-					if (dist[u] > dist[v] + w) {
-						dist[u] = dist[v] + w;
-						pred[u] = v;
-						pq.decreaseKey(u, dist[u]);
-					}
-				}
-			}
-			return new PairArray(dist, pred);
+			Lasagne.logger.info("Starting backward visit from " + s + "...");
+			VisitWorkspace ws = new VisitWorkspace(n);
+			backwardVisit(s, ws);
+			return toPairArray(ws);
 		} catch (Exception e) {
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
@@ -255,110 +178,365 @@ public class ArrayGraph {
 		}
 	}
 
-	public PairArray backwardVisit(int s) {
-		if (isWeighted) {
-			return backwardDijkstra(s);
+	/*
+	 * Execute a visit from s which follows the edges backward, whose results
+	 * are stored in the workspace (see visit(int, VisitWorkspace)).
+	 */
+	public void backwardVisit(int s, VisitWorkspace ws) {
+		backwardVisit(s, ws, threads);
+	}
+
+	/*
+	 * Execute a visit from s which follows the edges backward by means of the
+	 * given number of threads (see visit(int, VisitWorkspace, int)).
+	 */
+	public void backwardVisit(int s, VisitWorkspace ws, int threads) {
+		checkWorkspace(ws);
+		if (isWeighted && threads > 1) {
+			DeltaStepping.visit(getPool(threads), s, getIncidencyLists(), ws,
+					getMaxWeight());
+		} else if (isWeighted) {
+			shortestPaths(s, getIncidencyLists(), ws, Integer.MAX_VALUE);
+		} else if (threads > 1) {
+			ParallelBFS.visit(getPool(threads), s, getIncidencyLists(),
+					adjacencyLists, ws);
 		} else {
-			return backwardBFS(s);
+			directionOptimizingBFS(s, getIncidencyLists(), adjacencyLists, ws,
+					true, Integer.MAX_VALUE);
 		}
 	}
 
-	private PairArray BFS(int s) {
-		try {
-			Lasagne.logger.info("Starting visit from " + s + "...");
-			Queue<Integer> queue = new LinkedList<Integer>();
-			int[] dist = new int[n];
-			int[] pred = new int[n];
-			for (int i = 0; i < n; i++) {
-				dist[i] = -1;
-			}
-			int ecc = 0;
-			queue.add(s);
-			dist[s] = 0;
-			pred[s] = -1;
-			while (!queue.isEmpty()) {
-				int u = queue.poll();
-				for (int j = 1; j <= adjacencyLists[u][0].weight; j++) {
-					int v = adjacencyLists[u][j].head;
-					if (dist[v] == -1) {
-						dist[v] = dist[u] + 1;
-						pred[v] = u;
-						ecc = Math.max(ecc, dist[v]);
-						queue.add(v);
-					}
-				}
-			}
-			return new PairArray(dist, pred);
-		} catch (Exception e) {
-			StringWriter sw = new StringWriter();
-			PrintWriter pw = new PrintWriter(sw);
-			e.printStackTrace(pw);
-			Lasagne.logger
-					.info("======= Java Exception: if you want you can report it\n"
-							+ sw + "=======");
-			return null;
+	private void checkWorkspace(VisitWorkspace ws) {
+		if (ws.getN() != n) {
+			throw new IllegalArgumentException("The workspace has "
+					+ ws.getN() + " nodes instead of " + n);
 		}
 	}
 
+	/*
+	 * Replace the lists of the graph with their compressed form (see
+	 * CompressedAdjacencyLists), which the visits decode on the fly. A graph
+	 * which does not fit into the heap can be compressed if it has been read
+	 * from a binary graph file or outside the heap (see setOffHeap). The
+	 * incidency lists are compressed only if they have already been computed.
+	 */
+	public void compress() {
+		CompressedAdjacencyLists cal = new CompressedAdjacencyLists(
+				adjacencyLists);
+		long bytes = cal.getBytes();
+		adjacencyLists = cal;
+		if (incidencyLists != null) {
+			cal = new CompressedAdjacencyLists(incidencyLists);
+			bytes = bytes + cal.getBytes();
+			incidencyLists = cal;
+		}
+		Lasagne.logger.info("Size of the compressed lists: " + bytes
+				+ " bytes");
+	}
+
 	public void connectedComponents() {
 		component = new int[n];
 		lastComponent = 0;
 		for (int u = 0; u < n; u++) {
 			component[u] = -1;
 		}
+		VisitWorkspace ws = new VisitWorkspace(n);
 		for (int u = 0; u < n; u++) {
 			if (component[u] == -1) {
-				PairArray res = BFS(u);
-				for (int j = 0; j < n; j++) {
-					if (res.getFirstArray()[j] >= 0) {
-						component[j] = lastComponent;
-					}
+				directionOptimizingBFS(u, adjacencyLists, adjacencyLists, ws,
+						false, Integer.MAX_VALUE);
+				for (int i = 0; i < ws.visited; i++) {
+					component[ws.queue[i]] = lastComponent;
 				}
 				lastComponent++;
 			}
 		}
 	}
 
-	private PairArray dijkstra(int s) {
-		try {
-			Heap pq = new Heap(n);
-			int[] dist = new int[n];
-			int[] pred = new int[n];
-			for (int u = 0; u < n; u = u + 1) {
-				dist[u] = Integer.MAX_VALUE;
-				pred[u] = -1;
+	/*
+	 * Execute a visit from s which follows the lists by means of the buckets
+	 * of Dial (see Dial, 'Algorithm 360: Shortest-Path Forest with
+	 * Topological Ordering', CACM 1969), and store the results in the
+	 * workspace. Since no edge weighs more than the maximum weight C, the
+	 * tentative distances of the nodes reached and not yet extracted span at
+	 * most C + 1 values, so that C + 1 circular buckets are enough: the
+	 * buckets are scanned in order of distance, and each node is extracted
+	 * from the bucket of the current distance. The visit stops as
+	 * soon as a node at distance at least bound is extracted.
+	 */
+	private void dial(int s, AdjacencyLists lists, VisitWorkspace ws,
+			int bound) {
+		ws.clear(s);
+		int[] dist = ws.dist;
+		int[] pred = ws.pred;
+		int[] stamp = ws.stamp;
+		int epoch = ws.epoch;
+		int buckets = getMaxWeight() + 1;
+		ws.clearBuckets(buckets);
+		ws.bucketInsert(s, 0);
+		int pending = 1;
+		AdjacencyLists.Cursor c = ws.getCursor(lists);
+		for (int d = 0, b = 0; pending > 0;) {
+			int v = ws.bucketHead[b];
+			if (v < 0) {
+				d++;
+				b = b + 1 == buckets ? 0 : b + 1;
+				continue;
 			}
-			dist[s] = 0;
-			pred[s] = s;
-			for (int i = 0; i < n; i = i + 1) {
-				Element e = new Element();
-				e.id = i;
-				e.weight = dist[i];
-				pq.enqueue(e);
+			ws.bucketRemove(v, b);
+			pending--;
+			ws.queue[ws.visited++] = v;
+			if (d >= bound) {
+				break;
 			}
-			while (!pq.isEmpty()) {
-				Element e = pq.dequeue();
-				int v = e.id;
-				for (int j = 1; j <= adjacencyLists[v][0].weight; j++) {
-					int u = adjacencyLists[v][j].head;
-					int w = adjacencyLists[v][j].weight;
-					if (dist[u] > dist[v] + w) {
-						dist[u] = dist[v] + w;
-						pred[u] = v;
-						pq.decreaseKey(u, dist[u]);
+			c.moveTo(v);
+			while (c.hasNext()) {
+				int u = c.nextHead();
+				int du = d + c.getWeight();
+				if (stamp[u] != epoch) {
+					stamp[u] = epoch;
+					dist[u] = du;
+					pred[u] = v;
+					ws.bucketInsert(u, du % buckets);
+					pending++;
+				} else if (du < dist[u]) {
+					ws.bucketRemove(u, dist[u] % buckets);
+					dist[u] = du;
+					pred[u] = v;
+					ws.bucketInsert(u, du % buckets);
+				}
+			}
+		}
+		ws.finishByDistance();
+	}
+
+	/*
+	 * Execute a Dijkstra visit from s which follows the lists, and store the
+	 * results in the workspace. The nodes are inserted into the heap only when
+	 * they are reached. The visit stops as soon as a node at distance at least
+	 * bound is extracted from the heap.
+	 */
+	private void dijkstra(int s, AdjacencyLists lists, VisitWorkspace ws,
+			int bound) {
+		ws.clear(s);
+		int[] dist = ws.dist;
+		int[] pred = ws.pred;
+		int[] stamp = ws.stamp;
+		int epoch = ws.epoch;
+		ws.heapInsert(s);
+		AdjacencyLists.Cursor c = ws.getCursor(lists);
+		while (ws.heapSize > 0) {
+			int v = ws.heapPoll();
+			ws.queue[ws.visited++] = v;
+			if (dist[v] >= bound) {
+				break;
+			}
+			c.moveTo(v);
+			while (c.hasNext()) {
+				int u = c.nextHead();
+				int d = dist[v] + c.getWeight();
+				if (stamp[u] != epoch) {
+					stamp[u] = epoch;
+					dist[u] = d;
+					pred[u] = v;
+					ws.heapInsert(u);
+				} else if (d < dist[u]) {
+					dist[u] = d;
+					pred[u] = v;
+					ws.heapDecrease(u);
+				}
+			}
+		}
+		ws.finishByDistance();
+	}
+
+	/*
+	 * Execute a BFS from s which follows the lists out, and store the results
+	 * in the workspace (only the order of visit and the eccentricity, if the
+	 * distances are not kept). The visit proceeds level by level: a level is
+	 * usually computed top-down, by scanning the lists out of the frontier
+	 * nodes, but, when the frontier is large, it is computed bottom-up, by
+	 * scanning the lists in (the transpose of out) of the unvisited nodes
+	 * until a node in the frontier is found (see Beamer, Asanovic and
+	 * Patterson, "Direction-optimizing breadth-first search", SC 2012). The
+	 * visited nodes and the frontier are kept as bitmaps. The bottom-up steps
+	 * are disabled if in is null. The visit stops as soon as a node at
+	 * distance bound is reached.
+	 */
+	private void directionOptimizingBFS(int s, AdjacencyLists out,
+			AdjacencyLists in, VisitWorkspace ws, boolean isDistanceKept,
+			int bound) {
+		if (isDistanceKept) {
+			ws.clear(s);
+		} else {
+			ws.clearEccentricity();
+		}
+		int[] dist = ws.dist;
+		int[] pred = ws.pred;
+		int[] stamp = ws.stamp;
+		int epoch = ws.epoch;
+		int words = (n + 63) >>> 6;
+		if (ws.seen == null) {
+			ws.seen = new long[words];
+		}
+		long[] seen = ws.seen;
+		seen[s >>> 6] |= 1L << s;
+		// The nodes in order of visit: the frontier is queue[head..tail)
+		int[] queue = ws.queue;
+		int head = 0;
+		int tail = 1;
+		queue[0] = s;
+		// The number of edges leaving the frontier and the unvisited nodes
+		long frontierEdges = out.getDegree(s);
+		long unvisitedEdges = out.getEdges() - frontierEdges;
+		int previousSize = 0;
+		boolean isBottomUp = false;
+		int from = 0;
+		int ecc = 0;
+		AdjacencyLists.Cursor c = ws.getCursor(out);
+		for (int level = 1; head < tail; level++) {
+			int end = tail;
+			int size = end - head;
+			from = head;
+			ecc = level - 1;
+			if (in != null) {
+				if (!isBottomUp) {
+					// A bottom-up step checks all the nodes: in the last
+					// levels of a visit, few edges are left but the
+					// frontier can be too small to pay for it
+					isBottomUp = frontierEdges > unvisitedEdges / ALPHA
+							&& frontierEdges > n / BETA;
+				} else {
+					isBottomUp = size >= previousSize || size >= n / BETA;
+				}
+			}
+			frontierEdges = 0;
+			if (isBottomUp) {
+				if (ws.frontier == null) {
+					ws.frontier = new long[words];
+				}
+				long[] frontier = ws.frontier;
+				AdjacencyLists.Cursor inCursor = ws.getCursor(in);
+				for (int i = head; i < end; i++) {
+					frontier[queue[i] >>> 6] |= 1L << queue[i];
+				}
+				scan: for (int w = 0; w < words; w++) {
+					long unseen = ~seen[w];
+					while (unseen != 0) {
+						int v = (w << 6) + Long.numberOfTrailingZeros(unseen);
+						unseen = unseen & (unseen - 1);
+						if (v >= n) {
+							break;
+						}
+						inCursor.moveTo(v);
+						while (inCursor.hasNext()) {
+							int u = inCursor.nextHead();
+							if ((frontier[u >>> 6] & (1L << u)) != 0) {
+								seen[w] |= 1L << v;
+								if (isDistanceKept) {
+									stamp[v] = epoch;
+									dist[v] = level;
+									pred[v] = u;
+								}
+								queue[tail++] = v;
+								frontierEdges += out.getDegree(v);
+								if (level >= bound) {
+									break scan;
+								}
+								break;
+							}
+						}
+					}
+				}
+				for (int i = head; i < end; i++) {
+					frontier[queue[i] >>> 6] = 0;
+				}
+			} else {
+				scan: for (int i = head; i < end; i++) {
+					int u = queue[i];
+					c.moveTo(u);
+					while (c.hasNext()) {
+						int v = c.nextHead();
+						if ((seen[v >>> 6] & (1L << v)) == 0) {
+							seen[v >>> 6] |= 1L << v;
+							if (isDistanceKept) {
+								stamp[v] = epoch;
+								dist[v] = level;
+								pred[v] = u;
+							}
+							queue[tail++] = v;
+							frontierEdges += out.getDegree(v);
+							if (level >= bound) {
+								break scan;
+							}
+						}
 					}
 				}
 			}
-			return new PairArray(dist, pred);
-		} catch (Exception e) {
-			StringWriter sw = new StringWriter();
-			PrintWriter pw = new PrintWriter(sw);
-			e.printStackTrace(pw);
-			Lasagne.logger
-					.info("======= Java Exception: if you want you can report it\n"
-							+ sw + "=======");
-			return null;
+			if (level >= bound && tail > end) {
+				from = end;
+				ecc = level;
+				break;
+			}
+			unvisitedEdges -= frontierEdges;
+			previousSize = size;
+			head = end;
+		}
+		for (int i = 0; i < tail; i++) {
+			seen[queue[i] >>> 6] = 0;
+		}
+		ws.visited = tail;
+		ws.finish(from, ecc);
+	}
+
+	/*
+	 * Return the eccentricity of s, that is, the distance of the farthest node
+	 * reachable from s. The BFS keeps only the order of visit of the nodes and
+	 * a bitmap of the visited ones, and it is executed on a new workspace.
+	 */
+	public int eccentricity(int s) {
+		return eccentricity(s, new VisitWorkspace(n));
+	}
+
+	/*
+	 * Return the eccentricity of s, computed by means of the workspace (see
+	 * eccentricity(int)), which afterwards contains the nodes in order of
+	 * visit and the farthest node, but not their distances. The eccentricity
+	 * of a weighted graph is computed by a Dijkstra visit.
+	 */
+	public int eccentricity(int s, VisitWorkspace ws) {
+		return eccentricity(s, ws, Integer.MAX_VALUE);
+	}
+
+	/*
+	 * Return the eccentricity of s if it is smaller than bound: otherwise, the
+	 * visit stops as soon as a node at distance at least bound is reached, and
+	 * the distance of this node is returned. For instance, the iFUB method
+	 * needs only to know whether the eccentricity of a fringe node reaches the
+	 * current upper bound on the diameter.
+	 */
+	public int eccentricity(int s, VisitWorkspace ws, int bound) {
+		return eccentricity(s, ws, bound, threads);
+	}
+
+	/*
+	 * Return the eccentricity of s if it is smaller than bound, by means of
+	 * the given number of threads (a BFS with more than one thread is not
+	 * stopped at bound). For instance, the visits from different fringe
+	 * nodes executed in parallel use one thread each.
+	 */
+	public int eccentricity(int s, VisitWorkspace ws, int bound, int threads) {
+		checkWorkspace(ws);
+		if (isWeighted) {
+			shortestPaths(s, adjacencyLists, ws, bound);
+		} else if (threads > 1) {
+			visit(s, ws, threads);
+		} else {
+			directionOptimizingBFS(s, adjacencyLists,
+					isOriented ? incidencyLists : adjacencyLists, ws, false,
+					bound);
 		}
+		return ws.getEccentricity();
 	}
 
 	public int[] exportLargestCC(String fn) {
@@ -416,45 +594,58 @@ public class ArrayGraph {
 			} else {
 				bw.write(mappedI + " 0 1\n");
 			}
+			AdjacencyLists.Cursor c = adjacencyLists.newCursor();
+			// The in-degrees are computed by scanning the adjacency lists,
+			// so that the incidency lists are not needed
+			int[] inDegree = null;
+			if (isOriented) {
+				inDegree = new int[n];
+				for (int i = 0; i < n; i++) {
+					if (component[i] != -1) {
+						c.moveTo(i);
+						while (c.hasNext()) {
+							int h = c.nextHead();
+							if (component[h] != -1) {
+								inDegree[h]++;
+							}
+						}
+					}
+				}
+			}
 			for (int i = 0; i < n; i++) {
 				if (component[i] != -1) {
 					int od = 0;
-					for (int j = 1; j <= adjacencyLists[i][0].weight; j++) {
-						if (component[adjacencyLists[i][j].head] != -1) {
+					c.moveTo(i);
+					while (c.hasNext()) {
+						if (component[c.nextHead()] != -1) {
 							od = od + 1;
 						}
 					}
 					if (isOriented) {
-						int id = 0;
-						for (int j = 1; j <= incidencyLists[i][0].weight; j++) {
-							if (component[incidencyLists[i][j].head] != -1) {
-								id = id + 1;
-							}
-						}
-						bw.write(map[i] + " " + od + " " + id + "\n");
+						bw.write(map[i] + " " + od + " " + inDegree[i] + "\n");
 					} else {
 						bw.write(map[i] + " " + od + "\n");
 					}
 				}
 			}
 			for (int i = 0; i < n; i++) {
-				if (component[i] != -1)
-					for (int j = 1; j <= adjacencyLists[i][0].weight; j++) {
-						if (component[adjacencyLists[i][j].head] != -1) {
+				if (component[i] != -1) {
+					c.moveTo(i);
+					while (c.hasNext()) {
+						int h = c.nextHead();
+						if (component[h] != -1) {
 							if (isOriented) {
-								bw.write(map[i] + " "
-										+ map[adjacencyLists[i][j].head] + " "
-										+ adjacencyLists[i][j].weight + "\n");
+								bw.write(map[i] + " " + map[h] + " "
+										+ c.getWeight() + "\n");
 							} else {
-								if (i < adjacencyLists[i][j].head) {
-									bw.write(map[i] + " "
-											+ map[adjacencyLists[i][j].head]
-											+ " " + adjacencyLists[i][j].weight
-											+ "\n");
+								if (i < h) {
+									bw.write(map[i] + " " + map[h] + " "
+											+ c.getWeight() + "\n");
 								}
 							}
 						}
 					}
+				}
 			}
 			bw.close();
 			return rst;
@@ -474,8 +665,11 @@ public class ArrayGraph {
 		counter = counter + 1;
 		partial.push(u);
 		representative.push(u);
-		for (int j = 1; j <= adjacencyLists[u][0].weight; j++) {
-			int v = adjacencyLists[u][j].head;
+		// The cursor cannot be shared among the recursive invocations
+		AdjacencyLists.Cursor c = adjacencyLists.newCursor();
+		c.moveTo(u);
+		while (c.hasNext()) {
+			int v = c.nextHead();
 			if (dfsNumber[v] == -1) {
 				extendedRecursiveDFS(v);
 			} else if (!complete[v]) {
@@ -496,14 +690,132 @@ public class ArrayGraph {
 		}
 	}
 
-	public int getM() {
+	/*
+	 * Release the incidency lists of a directed graph: they will be computed
+	 * again if some method needs them.
+	 */
+	public void dropIncidencyLists() {
+		if (isOriented) {
+			incidencyLists = null;
+		}
+	}
+
+	public AdjacencyLists getAdjacencyLists() {
+		return adjacencyLists;
+	}
+
+	/*
+	 * Return the incidency lists of the graph (null if the graph is not
+	 * directed, since in this case they coincide with the adjacency lists).
+	 * The first time they are required, the lists are computed by transposing
+	 * the adjacency lists by means of all the available cores (see
+	 * Transposer).
+	 */
+	public AdjacencyLists getIncidencyLists() {
+		AdjacencyLists il = incidencyLists;
+		if (il == null && isOriented) {
+			synchronized (this) {
+				il = incidencyLists;
+				if (il == null) {
+					long startTime = System.currentTimeMillis();
+					il = Transposer.transpose(adjacencyLists, isOffHeap, Runtime
+							.getRuntime().availableProcessors());
+					incidencyLists = il;
+					long endTime = System.currentTimeMillis();
+					Lasagne.logger.info("Incidency lists computed in "
+							+ (int) (((endTime - startTime) / 1000.0) * 1000)
+							/ 1000.0 + " seconds");
+				}
+			}
+		}
+		return il;
+	}
+
+	/*
+	 * Return the identifier of node u in the file from which the graph has
+	 * been read.
+	 */
+	public int getLabel(int u) {
+		if (labels == null) {
+			return u;
+		}
+		return labels[u];
+	}
+
+	public long getM() {
 		return m;
 	}
 
+	/*
+	 * Return the maximum weight of an edge, which is computed the first time.
+	 */
+	private int getMaxWeight() {
+		if (maxWeight < 0) {
+			int w = 0;
+			AdjacencyLists.Cursor c = adjacencyLists.newCursor();
+			for (int u = 0; u < n; u++) {
+				c.moveTo(u);
+				while (c.hasNext()) {
+					c.nextHead();
+					w = Math.max(w, c.getWeight());
+				}
+			}
+			maxWeight = w;
+		}
+		return maxWeight;
+	}
+
 	public int getN() {
 		return n;
 	}
 
+	/*
+	 * Return the pool executing the parallel BFSes with the given number of
+	 * threads, which is created the first time (and whenever the number of
+	 * threads changes).
+	 */
+	private synchronized ForkJoinPool getPool(int threads) {
+		if (pool == null || pool.getParallelism() != threads) {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			pool = new ForkJoinPool(threads);
+		}
+		return pool;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/*
+	 * Return true if the nodes have been given identifiers different from
+	 * their indices (see getLabel).
+	 */
+	public boolean hasLabels() {
+		return labels != null;
+	}
+
+	/*
+	 * Return true if the file can be read by the readFile method, on the ground
+	 * of its extension (zip archives are always accepted, since the format is
+	 * given by the name of the file they contain).
+	 */
+	public static boolean isGraphFile(String fileName) {
+		if (fileName.endsWith(".zip")) {
+			return true;
+		} else if (fileName.endsWith(".gz")) {
+			fileName = fileName.substring(0, fileName.length() - 3);
+		}
+		return fileName.endsWith(".nde")
+				|| BinaryGraphFile.isBinaryFile(fileName)
+				|| EdgeListReader.getFormat(fileName) >= 0;
+	}
+
+	public boolean isOffHeap() {
+		return isOffHeap;
+	}
+
 	public boolean isOriented() {
 		return isOriented;
 	}
@@ -512,79 +824,106 @@ public class ArrayGraph {
 		return isWeighted;
 	}
 
-	public boolean readFile(String fileName) {
+	/*
+	 * Open a graph stored into a binary graph file by memory mapping it (see
+	 * BinaryGraphFile).
+	 */
+	public boolean readBinaryFile(String fileName) {
 		long startTime = System.currentTimeMillis();
-		File inFile = new File(fileName);
 		try {
-			BufferedReader br = new BufferedReader(new FileReader(inFile));
-			String line = br.readLine();
-			StringTokenizer lineTokens = new StringTokenizer(line, " ");
-			n = Integer.parseInt(lineTokens.nextToken());
-			isOriented = false;
-			isWeighted = false;
-			if (lineTokens.hasMoreTokens()) {
-				if (lineTokens.nextToken().equals("1")) {
-					isOriented = true;
-				}
-				if (lineTokens.hasMoreTokens()) {
-					if (lineTokens.nextToken().equals("1")) {
-						isWeighted = true;
-					}
-				}
-			}
+			BinaryGraphFile bgf = new BinaryGraphFile(new File(fileName));
+			n = bgf.getN();
+			m = bgf.getM();
+			labels = bgf.readLabels();
+			isOriented = bgf.isOriented();
+			isWeighted = bgf.isWeighted();
 			Lasagne.logger.info("Graph is oriented: " + isOriented);
 			Lasagne.logger.info("Graph is weighted: " + isWeighted);
 			Lasagne.logger.info("Number of nodes: " + n);
-			adjacencyLists = new Edge[n][];
-			incidencyLists = new Edge[n][];
-			m = 0;
-			for (int i = 0; i < n; i++) {
-				line = br.readLine();
-				lineTokens = new StringTokenizer(line, " ");
-				int u = Integer.parseInt(lineTokens.nextToken());
-				int od = Integer.parseInt(lineTokens.nextToken());
-				adjacencyLists[u] = new Edge[od + 1];
-				adjacencyLists[u][0] = new Edge(u, 0);
-				if (isOriented) {
-					int id = Integer.parseInt(lineTokens.nextToken());
-					incidencyLists[u] = new Edge[id + 1];
-					incidencyLists[u][0] = new Edge(u, 0);
+			Lasagne.logger.info("Number of edges: " + m);
+			AdjacencyLists[] lists = bgf.map();
+			adjacencyLists = lists[0];
+			incidencyLists = lists[1];
+			maxWeight = -1;
+			long endTime = System.currentTimeMillis();
+			Lasagne.logger.info("Execution time: "
+					+ (int) (((endTime - startTime) / 1000.0) * 1000) / 1000.0
+					+ " seconds");
+			return true;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return false;
+		}
+	}
+
+	/*
+	 * Read a graph from a NDE file or, if the file has the binary graph file
+	 * extension, from a binary graph file. The edges of a NDE file are parsed
+	 * by all the available cores (see NDEReader). Files in SNAP, METIS, or
+	 * Matrix Market format are imported directly (see EdgeListReader). Text
+	 * files can also be gzip or zip compressed (see CompressedGraphFile).
+	 */
+	public boolean readFile(String fileName) {
+		if (BinaryGraphFile.isBinaryFile(fileName)) {
+			return readBinaryFile(fileName);
+		}
+		long startTime = System.currentTimeMillis();
+		GraphReader reader = null;
+		try {
+			String contentName = fileName;
+			if (CompressedGraphFile.isCompressed(fileName)) {
+				contentName = CompressedGraphFile.getContentName(new File(
+						fileName));
+				if (BinaryGraphFile.isBinaryFile(contentName)) {
+					throw new IOException(
+							"Binary graph files cannot be compressed");
 				}
-				m = m + od;
 			}
-			if (!isOriented) {
-				m = m / 2;
+			int format = EdgeListReader.getFormat(contentName);
+			if (format >= 0) {
+				reader = new EdgeListReader(new File(fileName), format);
+			} else {
+				reader = new NDEReader(new File(fileName));
 			}
+			reader.setOffHeap(isOffHeap);
+			reader.readHeader();
+			isOriented = reader.isOriented();
+			isWeighted = reader.isWeighted();
+			Lasagne.logger.info("Graph is oriented: " + isOriented);
+			Lasagne.logger.info("Graph is weighted: " + isWeighted);
+			reader.readDegrees();
+			n = reader.getN();
+			labels = reader.getLabels();
+			Lasagne.logger.info("Number of nodes: " + n);
+			// The number of edges is known only after reading them, since the
+			// repeated edges of some formats are removed (see EdgeListReader)
+			reader.readEdges(Runtime.getRuntime().availableProcessors());
+			m = reader.getM();
 			Lasagne.logger.info("Number of edges: " + m);
-			line = br.readLine();
-			while (line != null && line.length() > 0) {
-				lineTokens = new StringTokenizer(line, " ");
-				int s = Integer.parseInt(lineTokens.nextToken());
-				int t = Integer.parseInt(lineTokens.nextToken());
-				adjacencyLists[s][0].weight++;
-				int w = 1;
-				if (isWeighted) {
-					w = Integer.parseInt(lineTokens.nextToken());
-				}
-				adjacencyLists[s][adjacencyLists[s][0].weight] = new Edge(t, w);
-				if (!isOriented) {
-					adjacencyLists[t][0].weight++;
-					adjacencyLists[t][adjacencyLists[t][0].weight] = new Edge(
-							s, w);
-				} else {
-					incidencyLists[t][0].weight++;
-					incidencyLists[t][incidencyLists[t][0].weight] = new Edge(
-							s, w);
-				}
-				line = br.readLine();
+			adjacencyLists = reader.getAdjacencyLists();
+			incidencyLists = null;
+			maxWeight = -1;
+			reader.close();
+			if (adjacencyLists instanceof OffHeapAdjacencyLists) {
+				Lasagne.logger.info("Edges stored outside the heap");
 			}
-			br.close();
 			long endTime = System.currentTimeMillis();
 			Lasagne.logger.info("Execution time: "
 					+ (int) (((endTime - startTime) / 1000.0) * 1000) / 1000.0
 					+ " seconds");
 			return true;
 		} catch (Exception e) {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException ioe) {
+				}
+			}
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
 			e.printStackTrace(pw);
@@ -595,6 +934,111 @@ public class ArrayGraph {
 		}
 	}
 
+	/*
+	 * Return the lists obtained by renaming each node u as rank[u]. The edges
+	 * of each list are sorted by head, so that a visit scans the new indices
+	 * in increasing order.
+	 */
+	private AdjacencyLists relabel(AdjacencyLists lists, int[] order,
+			int[] rank) {
+		int[] degree = new int[n];
+		for (int i = 0; i < n; i++) {
+			degree[i] = lists.getDegree(order[i]);
+		}
+		WritableAdjacencyLists rl = WritableAdjacencyLists.create(degree,
+				isWeighted, isOffHeap);
+		AdjacencyLists.Cursor c = lists.newCursor();
+		long[] edges = new long[16];
+		try {
+			for (int i = 0; i < n; i++) {
+				if (degree[i] > edges.length) {
+					edges = new long[Math.max(degree[i], 2 * edges.length)];
+				}
+				c.moveTo(order[i]);
+				for (int j = 0; j < degree[i]; j++) {
+					long h = rank[c.nextHead()];
+					edges[j] = (h << 32) | (c.getWeight() & 0xffffffffL);
+				}
+				Arrays.sort(edges, 0, degree[i]);
+				for (int j = 0; j < degree[i]; j++) {
+					rl.add(i, (int) (edges[j] >>> 32), (int) edges[j]);
+				}
+			}
+		} catch (IOException e) {
+			// The degrees of the new lists are the ones of the old lists
+			throw new IllegalStateException(e);
+		}
+		rl.close();
+		return rl;
+	}
+
+	/*
+	 * Relabel the nodes of the graph so that node order[i] becomes node i (see
+	 * NodeOrdering). The identifier of each node in the file is preserved, so
+	 * that the results computed on the reordered graph can be mapped back to
+	 * the original nodes by means of getLabel. The new lists are stored in
+	 * compressed sparse row form (outside the heap, if required by
+	 * setOffHeap): hence, the graph should be compressed after having been
+	 * reordered.
+	 */
+	public void reorder(int[] order) {
+		long startTime = System.currentTimeMillis();
+		int[] rank = new int[n];
+		for (int i = 0; i < n; i++) {
+			rank[order[i]] = i;
+		}
+		adjacencyLists = relabel(adjacencyLists, order, rank);
+		if (incidencyLists != null) {
+			incidencyLists = relabel(incidencyLists, order, rank);
+		}
+		int[] l = new int[n];
+		for (int i = 0; i < n; i++) {
+			l[i] = getLabel(order[i]);
+		}
+		labels = l;
+		long endTime = System.currentTimeMillis();
+		Lasagne.logger.info("Reordering time: "
+				+ (int) (((endTime - startTime) / 1000.0) * 1000) / 1000.0
+				+ " seconds");
+	}
+
+	/*
+	 * Require the edges of the graphs read from text files to be stored
+	 * outside the Java heap, even if they fit into arrays (see
+	 * OffHeapAdjacencyLists). Binary graph files are always memory mapped.
+	 */
+	public void setOffHeap(boolean isOffHeap) {
+		this.isOffHeap = isOffHeap;
+	}
+
+	/*
+	 * Execute a visit of the weighted graph from s which follows the lists:
+	 * the visit uses the buckets of Dial if the weights are small, and a
+	 * Dijkstra visit otherwise.
+	 */
+	private void shortestPaths(int s, AdjacencyLists lists, VisitWorkspace ws,
+			int bound) {
+		if (getMaxWeight() <= DIAL_MAX_WEIGHT) {
+			dial(s, lists, ws, bound);
+		} else {
+			dijkstra(s, lists, ws, bound);
+		}
+	}
+
+	/*
+	 * Set the number of threads used by the visits of the graph: if it is
+	 * greater than one, each level of a BFS is processed in parallel (see
+	 * ParallelBFS), and so is each bucket of a weighted visit (see
+	 * DeltaStepping).
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must "
+					+ "be positive");
+		}
+		this.threads = threads;
+	}
+
 	public void stronglyConnectedComponents(boolean verb) {
 		try {
 			long startTime = System.currentTimeMillis();
@@ -628,11 +1072,108 @@ public class ArrayGraph {
 		}
 	}
 
-	public PairArray visit(int s) {
+	/*
+	 * Return the distances and the shortest path tree stored in a workspace
+	 * which is no longer used, with the conventions of the BFS (-1 for the
+	 * unreachable nodes and for the predecessor of the source) or of the
+	 * Dijkstra visit (Integer.MAX_VALUE for the unreachable nodes, and the
+	 * source as its own predecessor).
+	 */
+	private PairArray toPairArray(VisitWorkspace ws) {
+		int[] dist = ws.dist;
+		int[] pred = ws.pred;
+		for (int v = 0; v < n; v++) {
+			if (ws.stamp[v] != ws.epoch) {
+				dist[v] = isWeighted ? Integer.MAX_VALUE : -1;
+				pred[v] = -1;
+			}
+		}
 		if (isWeighted) {
-			return dijkstra(s);
+			pred[ws.queue[0]] = ws.queue[0];
+		}
+		return new PairArray(dist, pred);
+	}
+
+	/*
+	 * Execute a BFS or a Dijkstra visit from s, and return the distances from
+	 * s (-1 or Integer.MAX_VALUE for the unreachable nodes, respectively)
+	 * together with the shortest path tree. The arrays are allocated by each
+	 * call: the methods which execute many visits should reuse a workspace
+	 * (see visit(int, VisitWorkspace)).
+	 */
+	public PairArray visit(int s) {
+		try {
+			Lasagne.logger.info("Starting visit from " + s + "...");
+			VisitWorkspace ws = new VisitWorkspace(n);
+			visit(s, ws);
+			return toPairArray(ws);
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		}
+	}
+
+	/*
+	 * Execute a BFS or a Dijkstra visit from s, whose results are stored in
+	 * the workspace (which must have been created for the n nodes of the
+	 * graph). Apart from the cursors created by the first visits, no memory
+	 * is allocated. The BFS uses the number of threads of the graph (see
+	 * setThreads).
+	 */
+	public void visit(int s, VisitWorkspace ws) {
+		visit(s, ws, threads);
+	}
+
+	/*
+	 * Execute a visit from s by means of the given number of threads (see
+	 * ParallelBFS and, for weighted graphs, DeltaStepping).
+	 */
+	public void visit(int s, VisitWorkspace ws, int threads) {
+		checkWorkspace(ws);
+		if (isWeighted && threads > 1) {
+			DeltaStepping.visit(getPool(threads), s, adjacencyLists, ws,
+					getMaxWeight());
+		} else if (isWeighted) {
+			shortestPaths(s, adjacencyLists, ws, Integer.MAX_VALUE);
+		} else if (threads > 1) {
+			ParallelBFS.visit(getPool(threads), s, adjacencyLists,
+					isOriented ? incidencyLists : adjacencyLists, ws);
 		} else {
-			return BFS(s);
+			// The bottom-up steps of a directed graph need its incidency
+			// lists: if they have not been computed yet, the visit is
+			// top-down only
+			directionOptimizingBFS(s, adjacencyLists,
+					isOriented ? incidencyLists : adjacencyLists, ws, true,
+					Integer.MAX_VALUE);
+		}
+	}
+
+	/*
+	 * Store the graph into a binary graph file, which can later be opened by
+	 * means of the readBinaryFile method.
+	 */
+	public boolean writeBinaryFile(String fileName) {
+		long startTime = System.currentTimeMillis();
+		try {
+			BinaryGraphFile.write(this, new File(fileName));
+			long endTime = System.currentTimeMillis();
+			Lasagne.logger.info("Binary file " + fileName + " written in "
+					+ (int) (((endTime - startTime) / 1000.0) * 1000) / 1000.0
+					+ " seconds");
+			return true;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return false;
 		}
 	}
 }
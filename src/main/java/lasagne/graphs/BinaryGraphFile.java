@@ -0,0 +1,360 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/*
+ * This class implements the binary graph file format, which can be opened by
+ * memory mapping it instead of parsing it. All values are little-endian. The
+ * file starts with a header of HEADER_SIZE bytes containing the magic number,
+ * the format version, the number n of nodes, the flags (bit 0 is set if the
+ * graph is directed, bit 1 if it is weighted, bit 2 if it contains the labels
+ * of the nodes), the number m of edges, and the number of entries of the
+ * adjacency and of the incidency lists. The header is followed by the
+ * adjacency lists and, if the graph is directed, by the incidency lists. Each
+ * list set consists of n + 1 long offsets, of the int heads and, if the graph
+ * is weighted, of the int weights. The file ends with the n int labels, if
+ * any, which give the original identifier of each node (for instance, of a
+ * reordered graph). Each section is padded to a multiple of 8 bytes.
+ */
+public class BinaryGraphFile {
+	public static final String EXTENSION = ".bnde";
+	static final int MAGIC = 0x42475341;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 40;
+	static final int ORIENTED = 1;
+	static final int WEIGHTED = 2;
+	static final int LABELED = 4;
+
+	/*
+	 * Return the name of the binary file corresponding to a NDE file.
+	 */
+	public static String getBinaryFileName(String fileName) {
+		if (fileName.endsWith(".nde")) {
+			fileName = fileName.substring(0, fileName.lastIndexOf(".nde"));
+		}
+		return fileName + EXTENSION;
+	}
+
+	public static boolean isBinaryFile(String fileName) {
+		return fileName.endsWith(EXTENSION);
+	}
+
+	private static long padding(long size) {
+		return (8 - size % 8) % 8;
+	}
+
+	private static void put(long v, boolean isLong, FileChannel fc,
+			ByteBuffer bb) throws IOException {
+		if (bb.remaining() < 8) {
+			bb.flip();
+			while (bb.hasRemaining()) {
+				fc.write(bb);
+			}
+			bb.clear();
+		}
+		if (isLong) {
+			bb.putLong(v);
+		} else {
+			bb.putInt((int) v);
+		}
+	}
+
+	/*
+	 * Write the given graph into a binary graph file.
+	 */
+	public static void write(ArrayGraph graph, File file) throws IOException {
+		FileOutputStream fos = new FileOutputStream(file);
+		FileChannel fc = fos.getChannel();
+		try {
+			ByteBuffer bb = ByteBuffer.allocateDirect(1 << 16).order(
+					ByteOrder.LITTLE_ENDIAN);
+			AdjacencyLists al = graph.getAdjacencyLists();
+			AdjacencyLists il = graph.getIncidencyLists();
+			int flags = 0;
+			if (graph.isOriented()) {
+				flags = flags | ORIENTED;
+			}
+			if (graph.isWeighted()) {
+				flags = flags | WEIGHTED;
+			}
+			if (graph.hasLabels()) {
+				flags = flags | LABELED;
+			}
+			bb.putInt(MAGIC);
+			bb.putInt(VERSION);
+			bb.putInt(graph.getN());
+			bb.putInt(flags);
+			bb.putLong(graph.getM());
+			bb.putLong(al.getEdges());
+			if (graph.isOriented()) {
+				bb.putLong(il.getEdges());
+			} else {
+				bb.putLong(0);
+			}
+			writeLists(al, graph.isWeighted(), fc, bb);
+			if (graph.isOriented()) {
+				writeLists(il, graph.isWeighted(), fc, bb);
+			}
+			if (graph.hasLabels()) {
+				for (int u = 0; u < graph.getN(); u++) {
+					put(graph.getLabel(u), false, fc, bb);
+				}
+				if (padding(4L * graph.getN()) > 0) {
+					put(0, false, fc, bb);
+				}
+			}
+			bb.flip();
+			while (bb.hasRemaining()) {
+				fc.write(bb);
+			}
+		} finally {
+			fos.close();
+		}
+	}
+
+	private static void writeLists(AdjacencyLists lists, boolean isWeighted,
+			FileChannel fc, ByteBuffer bb) throws IOException {
+		int n = lists.getN();
+		long size = lists.getEdges();
+		long offset = 0;
+		put(offset, true, fc, bb);
+		for (int u = 0; u < n; u++) {
+			offset = offset + lists.getDegree(u);
+			put(offset, true, fc, bb);
+		}
+		AdjacencyLists.Cursor c = lists.newCursor();
+		for (int u = 0; u < n; u++) {
+			c.moveTo(u);
+			while (c.hasNext()) {
+				put(c.nextHead(), false, fc, bb);
+			}
+		}
+		if (padding(4 * size) > 0) {
+			put(0, false, fc, bb);
+		}
+		if (isWeighted) {
+			for (int u = 0; u < n; u++) {
+				c.moveTo(u);
+				while (c.hasNext()) {
+					c.nextHead();
+					put(c.getWeight(), false, fc, bb);
+				}
+			}
+			if (padding(4 * size) > 0) {
+				put(0, false, fc, bb);
+			}
+		}
+	}
+
+	private File file;
+	private int n;
+	private long m;
+	private boolean isOriented;
+	private boolean isWeighted;
+	private boolean hasLabels;
+	private long adjacencySize;
+	private long incidencySize;
+
+	/*
+	 * Read and check the header of a binary graph file.
+	 */
+	public BinaryGraphFile(File file) throws IOException {
+		this.file = file;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			ByteBuffer bb = ByteBuffer.allocate(HEADER_SIZE).order(
+					ByteOrder.LITTLE_ENDIAN);
+			FileChannel fc = raf.getChannel();
+			while (bb.hasRemaining()) {
+				if (fc.read(bb) < 0) {
+					throw new IOException("Truncated header in " + file);
+				}
+			}
+			bb.flip();
+			if (bb.getInt() != MAGIC) {
+				throw new IOException(file + " is not a binary graph file");
+			}
+			int version = bb.getInt();
+			if (version != VERSION) {
+				throw new IOException("Unsupported binary graph file version "
+						+ version);
+			}
+			n = bb.getInt();
+			int flags = bb.getInt();
+			isOriented = (flags & ORIENTED) != 0;
+			isWeighted = (flags & WEIGHTED) != 0;
+			hasLabels = (flags & LABELED) != 0;
+			m = bb.getLong();
+			adjacencySize = bb.getLong();
+			incidencySize = bb.getLong();
+			if (raf.length() != getExpectedLength()) {
+				throw new IOException("Wrong length of " + file + ": "
+						+ raf.length() + " bytes instead of "
+						+ getExpectedLength());
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private long getExpectedLength() {
+		long length = getLabelsBase();
+		if (hasLabels) {
+			length = length + 4L * n + padding(4L * n);
+		}
+		return length;
+	}
+
+	/*
+	 * Return the position of the labels section (that is, the end of the
+	 * lists).
+	 */
+	private long getLabelsBase() {
+		long length = HEADER_SIZE + getListsLength(adjacencySize);
+		if (isOriented) {
+			length = length + getListsLength(incidencySize);
+		}
+		return length;
+	}
+
+	private long getListsLength(long size) {
+		long length = 8L * (n + 1) + 4 * size + padding(4 * size);
+		if (isWeighted) {
+			length = length + 4 * size + padding(4 * size);
+		}
+		return length;
+	}
+
+	public long getM() {
+		return m;
+	}
+
+	public int getN() {
+		return n;
+	}
+
+	public boolean hasLabels() {
+		return hasLabels;
+	}
+
+	public boolean isOriented() {
+		return isOriented;
+	}
+
+	public boolean isWeighted() {
+		return isWeighted;
+	}
+
+	/*
+	 * Map the file in memory and return its adjacency and incidency lists (the
+	 * latter is null if the graph is not directed). The pages are loaded
+	 * lazily by the operating system while the lists are scanned.
+	 */
+	public AdjacencyLists[] map() throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ByteBuffer[] chunks;
+		try {
+			FileChannel fc = raf.getChannel();
+			long length = fc.size();
+			long chunkSize = 1L << MappedAdjacencyLists.CHUNK_BITS;
+			chunks = new ByteBuffer[(int) ((length + chunkSize - 1) / chunkSize)];
+			for (int i = 0; i < chunks.length; i++) {
+				long start = i * chunkSize;
+				chunks[i] = fc.map(FileChannel.MapMode.READ_ONLY, start,
+						Math.min(chunkSize, length - start)).order(
+						ByteOrder.LITTLE_ENDIAN);
+			}
+		} finally {
+			raf.close();
+		}
+		AdjacencyLists[] lists = new AdjacencyLists[2];
+		long base = HEADER_SIZE;
+		lists[0] = mapLists(chunks, base, adjacencySize);
+		if (isOriented) {
+			base = base + getListsLength(adjacencySize);
+			lists[1] = mapLists(chunks, base, incidencySize);
+		}
+		return lists;
+	}
+
+	private AdjacencyLists mapLists(ByteBuffer[] chunks, long base, long size) {
+		long headsBase = base + 8L * (n + 1);
+		long weightsBase = -1;
+		if (isWeighted) {
+			weightsBase = headsBase + 4 * size + padding(4 * size);
+		}
+		return new MappedAdjacencyLists(chunks, n, size, base, headsBase,
+				weightsBase);
+	}
+
+	/*
+	 * Read the labels of the nodes (null if the file does not contain them).
+	 */
+	public int[] readLabels() throws IOException {
+		if (!hasLabels) {
+			return null;
+		}
+		int[] labels = new int[n];
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel fc = raf.getChannel();
+			ByteBuffer bb = ByteBuffer.allocate(1 << 16).order(
+					ByteOrder.LITTLE_ENDIAN);
+			long p = getLabelsBase();
+			int u = 0;
+			while (u < n) {
+				bb.clear();
+				bb.limit((int) Math.min(bb.capacity(), 4L * (n - u)));
+				while (bb.hasRemaining()) {
+					if (fc.read(bb, p + bb.position()) < 0) {
+						throw new IOException("Truncated labels in " + file);
+					}
+				}
+				p = p + bb.limit();
+				bb.flip();
+				while (bb.hasRemaining()) {
+					labels[u++] = bb.getInt();
+				}
+			}
+		} finally {
+			raf.close();
+		}
+		return labels;
+	}
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+
+/*
+ * This class implements adjacency (or incidency) lists in compressed form. The
+ * heads of each list are sorted and encoded as gaps: the first head as its
+ * (signed) difference from the node of the list, and every other head as its
+ * difference from the previous one. Since the neighbours of a node in web and
+ * social graphs tend to be close to each other, the gaps are small, and they
+ * are stored by means of a variable-length code which uses seven bits of each
+ * byte (the eighth bit says whether the number continues in the next byte).
+ * The weights, if any, are encoded after each head in the same way. The lists
+ * are decoded on the fly by the cursors, so that a visit never expands them.
+ * Note that the edges of each list are scanned in increasing order of their
+ * heads, which can be different from the order in which they have been read.
+ * The bytes are stored in arrays of at most 2^CHUNK_BITS bytes, and no list
+ * crosses the boundary between two arrays.
+ */
+public class CompressedAdjacencyLists extends AdjacencyLists {
+	class CompressedCursor extends Cursor {
+		private byte[] chunk;
+		private int position;
+		private int remaining;
+		private int last;
+		private int weight = 1;
+		private boolean first;
+
+		public int getWeight() {
+			return weight;
+		}
+
+		public boolean hasNext() {
+			return remaining > 0;
+		}
+
+		public void moveTo(int u) {
+			long p = offsets[u];
+			chunk = chunks[(int) (p >>> CHUNK_BITS)];
+			position = (int) (p & CHUNK_MASK);
+			remaining = nextInt();
+			last = u;
+			first = true;
+		}
+
+		public int nextHead() {
+			int v = nextInt();
+			if (first) {
+				last = last + ((v >>> 1) ^ -(v & 1));
+				first = false;
+			} else {
+				last = last + v;
+			}
+			if (isWeighted) {
+				v = nextInt();
+				weight = (v >>> 1) ^ -(v & 1);
+			}
+			remaining = remaining - 1;
+			return last;
+		}
+
+		/*
+		 * Decode the variable-length number starting at the current position.
+		 */
+		private int nextInt() {
+			int b = chunk[position++];
+			int v = b & 0x7f;
+			int shift = 7;
+			while (b < 0) {
+				b = chunk[position++];
+				v = v | ((b & 0x7f) << shift);
+				shift = shift + 7;
+			}
+			return v;
+		}
+	}
+
+	static final int CHUNK_BITS = 30;
+	static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private static int getLength(int v) {
+		int length = 1;
+		while ((v & ~0x7f) != 0) {
+			v = v >>> 7;
+			length = length + 1;
+		}
+		return length;
+	}
+
+	private static int put(byte[] b, int p, int v) {
+		while ((v & ~0x7f) != 0) {
+			b[p++] = (byte) ((v & 0x7f) | 0x80);
+			v = v >>> 7;
+		}
+		b[p++] = (byte) v;
+		return p;
+	}
+
+	private static int zigZag(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	private byte[][] chunks;
+	// The position of the list of each node: the chunk index is stored in the
+	// bits following the first CHUNK_BITS ones
+	private long[] offsets;
+	private long size;
+	private long bytes;
+	private boolean isWeighted;
+
+	/*
+	 * Create the compressed form of the given lists. The lists are read by
+	 * means of a cursor, so that they can be stored anywhere (in particular,
+	 * outside the heap).
+	 */
+	public CompressedAdjacencyLists(AdjacencyLists lists) {
+		int n = lists.getN();
+		size = lists.getEdges();
+		isWeighted = lists.isWeighted();
+		offsets = new long[n];
+		byte[][] full = new byte[1][];
+		int c = 0;
+		byte[] b = new byte[1024];
+		int p = 0;
+		long[] edges = new long[16];
+		Cursor cursor = lists.newCursor();
+		for (int u = 0; u < n; u++) {
+			int d = lists.getDegree(u);
+			if (d > edges.length) {
+				edges = new long[Math.max(d, 2 * edges.length)];
+			}
+			cursor.moveTo(u);
+			for (int i = 0; i < d; i++) {
+				long h = cursor.nextHead();
+				edges[i] = (h << 32) | (cursor.getWeight() & 0xffffffffL);
+			}
+			Arrays.sort(edges, 0, d);
+			long length = getLength(d);
+			int last = u;
+			for (int i = 0; i < d; i++) {
+				int h = (int) (edges[i] >>> 32);
+				length = length
+						+ getLength(i == 0 ? zigZag(h - last) : h - last);
+				if (isWeighted) {
+					length = length + getLength(zigZag((int) edges[i]));
+				}
+				last = h;
+			}
+			if (length > 1L << CHUNK_BITS) {
+				throw new IllegalArgumentException("The list of node " + u
+						+ " is too long to be compressed");
+			}
+			if (p + length > 1L << CHUNK_BITS) {
+				if (c == full.length) {
+					full = Arrays.copyOf(full, 2 * c);
+				}
+				full[c++] = Arrays.copyOf(b, p);
+				p = 0;
+			}
+			if (p + length > b.length) {
+				b = Arrays.copyOf(b, (int) Math.min(1L << CHUNK_BITS,
+						Math.max(p + length, 2L * b.length)));
+			}
+			offsets[u] = ((long) c << CHUNK_BITS) | p;
+			p = put(b, p, d);
+			last = u;
+			for (int i = 0; i < d; i++) {
+				int h = (int) (edges[i] >>> 32);
+				p = put(b, p, i == 0 ? zigZag(h - last) : h - last);
+				if (isWeighted) {
+					p = put(b, p, zigZag((int) edges[i]));
+				}
+				last = h;
+			}
+		}
+		chunks = Arrays.copyOf(full, c + 1);
+		chunks[c] = Arrays.copyOf(b, p);
+		for (int i = 0; i <= c; i++) {
+			bytes = bytes + chunks[i].length;
+		}
+	}
+
+	/*
+	 * Return the number of bytes used by the compressed lists (the offsets of
+	 * the lists excluded).
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	public int getDegree(int u) {
+		long p = offsets[u];
+		byte[] chunk = chunks[(int) (p >>> CHUNK_BITS)];
+		int i = (int) (p & CHUNK_MASK);
+		int b = chunk[i++];
+		int d = b & 0x7f;
+		int shift = 7;
+		while (b < 0) {
+			b = chunk[i++];
+			d = d | ((b & 0x7f) << shift);
+			shift = shift + 7;
+		}
+		return d;
+	}
+
+	public long getEdges() {
+		return size;
+	}
+
+	public int getN() {
+		return offsets.length;
+	}
+
+	public boolean isWeighted() {
+		return isWeighted;
+	}
+
+	public Cursor newCursor() {
+		return new CompressedCursor();
+	}
+}
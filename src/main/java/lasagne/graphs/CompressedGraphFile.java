@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/*
+ * This class allows the graph readers to read gzip ('.gz') and zip ('.zip')
+ * compressed graph files directly, without extracting them on disk. The
+ * format of the graph is determined by the name of the compressed file (once
+ * '.gz' has been removed) or by the name of the first file in the zip
+ * archive. The decompression is executed by a separate thread (see
+ * PipelinedInputStream).
+ */
+class CompressedGraphFile {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/*
+	 * Return the first entry of a zip archive which is not a directory.
+	 */
+	private static ZipEntry getFirstEntry(ZipFile zf) throws IOException {
+		Enumeration<? extends ZipEntry> entries = zf.entries();
+		while (entries.hasMoreElements()) {
+			ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory()) {
+				return entry;
+			}
+		}
+		throw new IOException(zf.getName() + " contains no file");
+	}
+
+	/*
+	 * Return the name of the graph file contained in a compressed file.
+	 */
+	static String getContentName(File file) throws IOException {
+		String fileName = file.getName();
+		if (fileName.endsWith(".gz")) {
+			return fileName.substring(0, fileName.length() - 3);
+		}
+		ZipFile zf = new ZipFile(file);
+		try {
+			return getFirstEntry(zf).getName();
+		} finally {
+			zf.close();
+		}
+	}
+
+	static boolean isCompressed(String fileName) {
+		return fileName.endsWith(".gz") || fileName.endsWith(".zip");
+	}
+
+	/*
+	 * Open a compressed file and return the stream of its decompressed
+	 * content.
+	 */
+	static InputStream open(File file) throws IOException {
+		InputStream in = new BufferedInputStream(new FileInputStream(file),
+				BUFFER_SIZE);
+		if (file.getName().endsWith(".gz")) {
+			in = new GZIPInputStream(in, BUFFER_SIZE);
+		} else {
+			ZipInputStream zis = new ZipInputStream(in);
+			ZipEntry entry = zis.getNextEntry();
+			while (entry != null && entry.isDirectory()) {
+				entry = zis.getNextEntry();
+			}
+			if (entry == null) {
+				zis.close();
+				throw new IOException(file + " contains no file");
+			}
+			in = zis;
+		}
+		return new PipelinedInputStream(in);
+	}
+}
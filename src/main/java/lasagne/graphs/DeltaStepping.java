@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * This class executes a delta-stepping visit of a weighted graph by means of
+ * a fork-join pool (see Meyer and Sanders, 'Delta-stepping: a parallelizable
+ * shortest path algorithm', Journal of Algorithms 2003). The nodes are kept
+ * in buckets of width delta according to their tentative distance, and the
+ * buckets are processed in order: the light edges (weighing at most delta)
+ * of the nodes of the current bucket are relaxed in parallel until the
+ * bucket stays empty, and then the heavy edges of the nodes removed from it
+ * are relaxed in parallel once. As in ParallelBFS, the nodes to be relaxed
+ * are split into chunks, and each chunk is processed by a task which appends
+ * the nodes whose tentative distance it decreases to its own buffer. The
+ * tentative distance and the predecessor of a node are packed in a long,
+ * which is decreased by a compare-and-set: in this way, the predecessor of a
+ * node is the one with the smallest identifier among those on a shortest
+ * path, independently of the order of the relaxations.
+ */
+class DeltaStepping {
+	/*
+	 * This class implements the task which processes the chunks from to
+	 * (excluded), by splitting them in two halves.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		ChunkTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(from, middle), new ChunkTask(middle,
+						to));
+			} else {
+				relax(from);
+			}
+		}
+	}
+
+	// The minimum number of nodes processed by a chunk
+	private static final int GRAIN = 256;
+	// The tentative distance and predecessor of a node not yet reached
+	private static final long UNREACHED = Long.MAX_VALUE;
+
+	/*
+	 * Execute a visit from s which follows the lists (whose maximum weight is
+	 * maxWeight) by means of the pool, and store the results in the
+	 * workspace.
+	 */
+	static void visit(ForkJoinPool pool, int s, AdjacencyLists lists,
+			VisitWorkspace ws, int maxWeight) {
+		new DeltaStepping(pool, lists, ws, maxWeight).run(s);
+	}
+
+	private ForkJoinPool pool;
+	private AdjacencyLists lists;
+	private VisitWorkspace ws;
+	private int n;
+	private int maxChunks;
+	private AdjacencyLists.Cursor[] cursors;
+	private int delta;
+	// The buckets, which are circular since the tentative distances of the
+	// nodes not yet settled span less than maxWeight + delta values, and the
+	// number of entries in the buckets (some of which may refer to nodes
+	// whose distance has decreased afterwards)
+	private int[][] buckets;
+	private int[] bucketSizes;
+	private long entries;
+	// The current step: the nodes it relaxes, its range, the number of
+	// chunks, and whether it relaxes the light or the heavy edges
+	private int[] nodes;
+	private int head;
+	private int end;
+	private int chunks;
+	private boolean isLight;
+
+	private DeltaStepping(ForkJoinPool pool, AdjacencyLists lists,
+			VisitWorkspace ws, int maxWeight) {
+		this.pool = pool;
+		this.lists = lists;
+		this.ws = ws;
+		n = ws.getN();
+		maxChunks = 8 * pool.getParallelism();
+		cursors = new AdjacencyLists.Cursor[maxChunks];
+		// The width of the buckets is the maximum weight divided by the
+		// average degree
+		long degree = Math.max(1, lists.getEdges() / Math.max(1, n));
+		delta = (int) Math.max(1, maxWeight / degree);
+		buckets = new int[maxWeight / delta + 2][];
+		bucketSizes = new int[buckets.length];
+		if (ws.tentative == null) {
+			ws.tentative = new AtomicLongArray(n);
+			for (int v = 0; v < n; v++) {
+				ws.tentative.set(v, UNREACHED);
+			}
+			ws.deltaFrontier = new int[n];
+			ws.deltaKeys = new long[n];
+		}
+		if (ws.buffers == null) {
+			ws.buffers = new int[maxChunks][];
+			ws.bufferSizes = new int[maxChunks];
+			ws.bufferEdges = new long[maxChunks];
+		} else if (ws.buffers.length < maxChunks) {
+			ws.buffers = Arrays.copyOf(ws.buffers, maxChunks);
+			ws.bufferSizes = new int[maxChunks];
+			ws.bufferEdges = new long[maxChunks];
+		}
+	}
+
+	/*
+	 * Append v, whose tentative distance has been decreased by chunk c, to
+	 * the buffer of the chunk.
+	 */
+	private void append(int c, int v) {
+		int[] buffer = ws.buffers[c];
+		if (buffer == null) {
+			buffer = new int[GRAIN];
+			ws.buffers[c] = buffer;
+		} else if (ws.bufferSizes[c] == buffer.length) {
+			buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			ws.buffers[c] = buffer;
+		}
+		buffer[ws.bufferSizes[c]++] = v;
+	}
+
+	/*
+	 * Insert the nodes of the buffers of the chunks into the buckets of their
+	 * tentative distances.
+	 */
+	private void collect() {
+		for (int c = 0; c < chunks; c++) {
+			int[] buffer = ws.buffers[c];
+			for (int i = 0; i < ws.bufferSizes[c]; i++) {
+				int v = buffer[i];
+				insert(v, (int) (ws.tentative.get(v) >>> 32));
+			}
+		}
+	}
+
+	/*
+	 * Move the nodes of the k-th bucket which have not been relaxed yet with
+	 * their current distance to the frontier, and return their number. The
+	 * nodes removed from the bucket for the first time are appended to the
+	 * queue.
+	 */
+	private int extract(int k) {
+		int b = k % buckets.length;
+		int[] bucket = buckets[b];
+		int size = bucketSizes[b];
+		bucketSizes[b] = 0;
+		entries -= size;
+		int[] frontier = ws.deltaFrontier;
+		int[] dist = ws.dist;
+		int[] stamp = ws.stamp;
+		int epoch = ws.epoch;
+		int frontierSize = 0;
+		for (int i = 0; i < size; i++) {
+			int v = bucket[i];
+			int d = (int) (ws.tentative.get(v) >>> 32);
+			// The entry is skipped if the node has moved to a smaller
+			// bucket, or if it has already been relaxed with this distance
+			if (d / delta != k || (stamp[v] == epoch && dist[v] == d)) {
+				continue;
+			}
+			if (stamp[v] != epoch) {
+				stamp[v] = epoch;
+				ws.queue[ws.visited++] = v;
+			}
+			dist[v] = d;
+			frontier[frontierSize++] = v;
+		}
+		return frontierSize;
+	}
+
+	/*
+	 * Insert v into the bucket of distance d.
+	 */
+	private void insert(int v, int d) {
+		int b = (d / delta) % buckets.length;
+		int[] bucket = buckets[b];
+		if (bucket == null) {
+			bucket = new int[GRAIN];
+			buckets[b] = bucket;
+		} else if (bucketSizes[b] == bucket.length) {
+			bucket = Arrays.copyOf(bucket, 2 * bucket.length);
+			buckets[b] = bucket;
+		}
+		bucket[bucketSizes[b]++] = v;
+		entries++;
+	}
+
+	/*
+	 * Relax the light (or heavy) edges of the nodes from head to end
+	 * (excluded), and insert the nodes whose distance decreases into the
+	 * buckets.
+	 */
+	private void relax(int[] nodes, int head, int end, boolean isLight) {
+		this.nodes = nodes;
+		this.head = head;
+		this.end = end;
+		this.isLight = isLight;
+		chunks = Math.max(1, Math.min(maxChunks, (end - head) / GRAIN));
+		for (int c = 0; c < chunks; c++) {
+			ws.bufferSizes[c] = 0;
+		}
+		pool.invoke(new ChunkTask(0, chunks));
+		collect();
+	}
+
+	/*
+	 * Relax the light (or heavy) edges of the nodes in chunk c of the current
+	 * range.
+	 */
+	private void relax(int c) {
+		int from = head + (int) ((long) (end - head) * c / chunks);
+		int to = head + (int) ((long) (end - head) * (c + 1) / chunks);
+		int[] dist = ws.dist;
+		AtomicLongArray tentative = ws.tentative;
+		AdjacencyLists.Cursor cursor = cursors[c];
+		if (cursor == null) {
+			cursor = lists.newCursor();
+			cursors[c] = cursor;
+		}
+		for (int i = from; i < to; i++) {
+			int u = nodes[i];
+			cursor.moveTo(u);
+			while (cursor.hasNext()) {
+				int v = cursor.nextHead();
+				int w = cursor.getWeight();
+				if ((w <= delta) != isLight) {
+					continue;
+				}
+				long key = ((long) (dist[u] + w) << 32) | u;
+				long current = tentative.get(v);
+				while (key < current) {
+					if (tentative.compareAndSet(v, current, key)) {
+						append(c, v);
+						break;
+					}
+					current = tentative.get(v);
+				}
+			}
+		}
+	}
+
+	private void run(int s) {
+		ws.clear(s);
+		int[] queue = ws.queue;
+		queue[ws.visited++] = s;
+		ws.tentative.set(s, 0);
+		ws.deltaFrontier[0] = s;
+		relax(ws.deltaFrontier, 0, 1, true);
+		long[] keys = ws.deltaKeys;
+		int settled = 0;
+		for (int k = 0;; k++) {
+			while (bucketSizes[k % buckets.length] > 0) {
+				int size = extract(k);
+				if (size > 0) {
+					relax(ws.deltaFrontier, 0, size, true);
+				}
+			}
+			if (ws.visited > settled) {
+				relax(queue, settled, ws.visited, false);
+				// The nodes settled in the bucket are sorted by distance
+				// (and by identifier)
+				for (int i = settled; i < ws.visited; i++) {
+					keys[i] = ((long) ws.dist[queue[i]] << 32) | queue[i];
+				}
+				Arrays.sort(keys, settled, ws.visited);
+				for (int i = settled; i < ws.visited; i++) {
+					queue[i] = (int) keys[i];
+				}
+				settled = ws.visited;
+			}
+			if (entries == 0) {
+				break;
+			}
+		}
+		for (int i = 0; i < ws.visited; i++) {
+			int v = queue[i];
+			ws.pred[v] = (int) ws.tentative.get(v);
+			ws.tentative.set(v, UNREACHED);
+		}
+		ws.pred[s] = -1;
+		ws.finishByDistance();
+	}
+}
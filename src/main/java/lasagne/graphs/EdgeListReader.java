@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+
+import lasagne.utilities.IntHashMap;
+
+/*
+ * This class imports a graph from an edge list file in one of the following
+ * formats, without converting it to a NDE file first.
+ * 
+ * - SNAP ('.snap.txt'): each line contains the identifiers of the tail and of the
+ * head of an edge and, optionally, its weight. Identifiers can be arbitrary
+ * (not necessarily contiguous) non-negative integers, which are remapped to
+ * node indices in order of first appearance. The graph is directed, unless one
+ * of the initial comments contains the word 'undirected': in this case, since
+ * SNAP undirected files usually list each edge in both directions, the
+ * repeated edges are removed from the lists once they are filled (keeping the
+ * smallest weight), so that each edge is stored once in each direction.
+ * 
+ * - METIS ('.graph'): the first line contains the number of nodes, the number
+ * of edges and the format flags, and the i-th following line contains the
+ * neighbors (starting from 1) of the i-th node, each one followed by the
+ * weight of the edge if the graph is weighted. The graph is undirected.
+ * 
+ * - Matrix Market ('.mtx'): the banner specifies whether the matrix is
+ * 'pattern' (not weighted) or 'integer' (weighted), and whether it is
+ * 'general' (directed) or 'symmetric' (undirected). The size line is followed
+ * by one line per edge containing the row and the column (starting from 1)
+ * and, if the graph is weighted, the value.
+ * 
+ * The file is read twice by streaming it: the first pass counts the degree of
+ * each node, so that the lists can be allocated exactly, and the second pass
+ * fills them. Self-loops are ignored, since they do not affect distances. The
+ * file can also be compressed (see CompressedGraphFile).
+ */
+class EdgeListReader extends GraphReader {
+	static final int SNAP = 0;
+	static final int METIS = 1;
+	static final int MATRIX_MARKET = 2;
+
+	/*
+	 * Return the format of an edge list file on the ground of its extension
+	 * (without the compression extension), or -1 if the file is not an edge
+	 * list file. SNAP files need the dedicated '.snap.txt' extension, since
+	 * any other text file would otherwise be taken for a graph.
+	 */
+	static int getFormat(String fileName) {
+		if (fileName.endsWith(".snap.txt")) {
+			return SNAP;
+		} else if (fileName.endsWith(".graph")) {
+			return METIS;
+		} else if (fileName.endsWith(".mtx")) {
+			return MATRIX_MARKET;
+		}
+		return -1;
+	}
+
+	private File file;
+	private int format;
+	// Degrees computed by the first pass
+	private int[] degree;
+	// These fields are used only for the SNAP format
+	private IntHashMap map;
+	private int[] labels;
+	// These fields are used only for the METIS format
+	private int vertexSizes;
+	private int vertexWeights;
+
+	EdgeListReader(File file, int format) {
+		this.file = file;
+		this.format = format;
+	}
+
+	/*
+	 * Store an edge in the lists if the second pass is executing, otherwise
+	 * count it in the degrees.
+	 */
+	private void addEdge(int s, int t, int w, boolean fill) throws IOException {
+		if (s == t) {
+			return;
+		}
+		if (fill) {
+			adjacencyLists.add(s, t, w);
+			if (!isOriented) {
+				adjacencyLists.add(t, s, w);
+			}
+		} else {
+			degree[s]++;
+			if (!isOriented) {
+				degree[t]++;
+			}
+			m = m + 1;
+		}
+	}
+
+	void close() {
+		// The file is closed at the end of each pass
+	}
+
+	/*
+	 * Remove the repeated heads from each list, by sorting it and keeping the
+	 * edge with the smallest weight among those with the same head, and
+	 * update the number of edges accordingly. Each edge is packed into a long
+	 * with the weight in the lower half: weights are compared as unsigned
+	 * values, so that a negative weight cannot overwrite the head.
+	 */
+	private void deduplicate() {
+		long[] edges = new long[0];
+		AdjacencyLists.Cursor cursor = adjacencyLists.newCursor();
+		long arcs = 0;
+		for (int u = 0; u < n; u++) {
+			int d = adjacencyLists.getDegree(u);
+			if (d > edges.length) {
+				edges = new long[Math.max(d, 2 * edges.length)];
+			}
+			cursor.moveTo(u);
+			for (int j = 0; j < d; j++) {
+				long h = cursor.nextHead();
+				edges[j] = (h << 32) | (cursor.getWeight() & 0xffffffffL);
+			}
+			Arrays.sort(edges, 0, d);
+			long p = adjacencyLists.getOffset(u);
+			int k = 0;
+			for (int j = 0; j < d; j++) {
+				if (j == 0 || edges[j] >>> 32 != edges[j - 1] >>> 32) {
+					adjacencyLists.set(p + k, (int) (edges[j] >>> 32),
+							(int) edges[j]);
+					k = k + 1;
+				}
+			}
+			adjacencyLists.setNext(u, p + k);
+			arcs = arcs + k;
+		}
+		m = arcs / 2;
+	}
+
+	/*
+	 * Check that a node index read from a METIS or Matrix Market file (where
+	 * nodes start from 1) is in range, and return it starting from 0.
+	 */
+	private int getIndex(int i, LineParser lp) throws IOException {
+		if (i < 1 || i > n) {
+			throw new IOException("Node index out of range before position "
+					+ lp.getPosition());
+		}
+		return i - 1;
+	}
+
+	int[] getLabels() {
+		return labels;
+	}
+
+	/*
+	 * Return the index of the node with identifier id, by assigning a new index
+	 * to it if it has not been seen before.
+	 */
+	private int getNode(int id) throws IOException {
+		if (id < 0) {
+			throw new IOException("Negative node identifier " + id);
+		}
+		int u = map.putIfAbsent(id, n);
+		if (u == -1) {
+			u = n;
+			if (n == labels.length) {
+				labels = grow(labels);
+				degree = grow(degree);
+			}
+			labels[n] = id;
+			n = n + 1;
+		}
+		return u;
+	}
+
+	private int[] grow(int[] a) {
+		int[] b = new int[Math.max(16, 2 * a.length)];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+
+	/*
+	 * Execute one pass over the file: if fill is true, the edges are stored in
+	 * the lists, otherwise they are counted in the degree arrays.
+	 */
+	private void pass(boolean fill) throws IOException {
+		InputStream is = open();
+		try {
+			pass(new LineParser(is), fill);
+		} finally {
+			is.close();
+		}
+	}
+
+	private void pass(LineParser lp, boolean fill) throws IOException {
+		if (format == SNAP) {
+			int[] values = new int[isWeighted ? 3 : 2];
+			int c = lp.nextLine(values);
+			while (c != -1) {
+				if (c > 0) {
+					if (c < values.length) {
+						throw new IOException("Malformed edge line before position "
+								+ lp.getPosition());
+					}
+					int s, t;
+					if (fill) {
+						s = map.get(values[0]);
+						t = map.get(values[1]);
+					} else {
+						s = getNode(values[0]);
+						t = getNode(values[1]);
+					}
+					addEdge(s, t, isWeighted ? values[2] : 1, fill);
+				}
+				c = lp.nextLine(values);
+			}
+		} else if (format == METIS) {
+			lp.nextLine(new int[0]);
+			int skip = vertexSizes + vertexWeights;
+			int step = isWeighted ? 2 : 1;
+			for (int u = 0; u < n; u++) {
+				int c = lp.nextFullLine();
+				if (c == -1) {
+					throw new IOException("Missing line of node " + (u + 1));
+				}
+				int[] tokens = lp.getTokens();
+				if (c < skip || (c - skip) % step != 0) {
+					throw new IOException("Malformed line of node " + (u + 1));
+				}
+				for (int j = skip; j < c; j = j + step) {
+					int v = getIndex(tokens[j], lp);
+					if (u == v) {
+						continue;
+					}
+					if (fill) {
+						adjacencyLists.add(u, v, isWeighted ? tokens[j + 1]
+								: 1);
+					} else {
+						degree[u]++;
+						m = m + 1;
+					}
+				}
+			}
+		} else {
+			int[] values = new int[isWeighted ? 3 : 2];
+			lp.nextLine(values);
+			int c = lp.nextLine(values);
+			while (c != -1) {
+				if (c > 0) {
+					if (c < values.length) {
+						throw new IOException("Malformed entry line before position "
+								+ lp.getPosition());
+					}
+					addEdge(getIndex(values[0], lp), getIndex(values[1], lp),
+							isWeighted ? values[2] : 1, fill);
+				}
+				c = lp.nextLine(values);
+			}
+		}
+	}
+
+	/*
+	 * Return the stream of the (decompressed) content of the file.
+	 */
+	private InputStream open() throws IOException {
+		if (CompressedGraphFile.isCompressed(file.getName())) {
+			return CompressedGraphFile.open(file);
+		}
+		return new FileInputStream(file);
+	}
+
+	void readDegrees() throws IOException {
+		degree = new int[n];
+		if (format == SNAP) {
+			map = new IntHashMap();
+			labels = new int[0];
+			n = 0;
+		}
+		m = 0;
+		pass(false);
+		if (format == SNAP) {
+			degree = trim(degree);
+			labels = trim(labels);
+		} else if (format == METIS) {
+			// Each edge appears in the lines of both its endpoints
+			m = m / 2;
+		}
+		adjacencyLists = createLists(degree);
+		degree = null;
+	}
+
+	/*
+	 * Read the edges by means of a single thread, since the file has to be
+	 * scanned sequentially in order to remap the node identifiers.
+	 */
+	void readEdges(int threads) throws IOException {
+		pass(true);
+		map = null;
+		if (format == SNAP && !isOriented) {
+			deduplicate();
+		}
+		adjacencyLists.close();
+	}
+
+	void readHeader() throws IOException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(open()));
+		try {
+			String line = br.readLine();
+			if (format == SNAP) {
+				isOriented = true;
+				while (line != null && line.startsWith("#")) {
+					if (line.toLowerCase().contains("undirected")) {
+						isOriented = false;
+					}
+					line = br.readLine();
+				}
+				while (line != null && line.trim().length() == 0) {
+					line = br.readLine();
+				}
+				isWeighted = line != null
+						&& line.trim().split("\\s+").length > 2;
+			} else if (format == METIS) {
+				while (line != null && line.startsWith("%")) {
+					line = br.readLine();
+				}
+				if (line == null) {
+					throw new IOException("Missing METIS header");
+				}
+				String[] tokens = line.trim().split("\\s+");
+				n = Integer.parseInt(tokens[0]);
+				int fmt = 0;
+				if (tokens.length > 2) {
+					fmt = Integer.parseInt(tokens[2]);
+				}
+				int ncon = 1;
+				if (tokens.length > 3) {
+					ncon = Integer.parseInt(tokens[3]);
+				}
+				isOriented = false;
+				isWeighted = fmt % 10 == 1;
+				vertexWeights = (fmt / 10) % 10 == 1 ? ncon : 0;
+				vertexSizes = (fmt / 100) % 10 == 1 ? 1 : 0;
+			} else {
+				String banner = line == null ? "" : line.toLowerCase();
+				if (!banner.startsWith("%%matrixmarket matrix coordinate")) {
+					throw new IOException(
+							"Only coordinate Matrix Market files are supported");
+				}
+				if (banner.contains(" pattern")) {
+					isWeighted = false;
+				} else if (banner.contains(" integer")) {
+					isWeighted = true;
+				} else {
+					throw new IOException(
+							"Only pattern or integer Matrix Market files are supported");
+				}
+				if (banner.contains(" general")) {
+					isOriented = true;
+				} else if (banner.contains(" symmetric")) {
+					isOriented = false;
+				} else {
+					throw new IOException(
+							"Only general or symmetric Matrix Market files are supported");
+				}
+				while (line != null && line.startsWith("%")) {
+					line = br.readLine();
+				}
+				if (line == null) {
+					throw new IOException("Missing Matrix Market size line");
+				}
+				String[] tokens = line.trim().split("\\s+");
+				n = Math.max(Integer.parseInt(tokens[0]),
+						Integer.parseInt(tokens[1]));
+			}
+		} finally {
+			br.close();
+		}
+	}
+
+	private int[] trim(int[] a) {
+		int[] b = new int[n];
+		System.arraycopy(a, 0, b, 0, n);
+		return b;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+
+/*
+ * This class is the common part of the readers of text graph files. A graph is
+ * read in three steps: readHeader determines the number of nodes (if known in
+ * advance) and whether the graph is directed and/or weighted, readDegrees
+ * determines the length of each list and allocates the lists, and readEdges
+ * fills the lists. Only the adjacency lists are read: the incidency lists of a
+ * directed graph are computed by ArrayGraph when they are needed.
+ */
+abstract class GraphReader {
+	protected int n;
+	protected long m;
+	protected boolean isOriented;
+	protected boolean isWeighted;
+	protected boolean isOffHeap;
+	protected WritableAdjacencyLists adjacencyLists;
+
+	abstract void close() throws IOException;
+
+	/*
+	 * Allocate the lists whose lengths are given by the degree array, by
+	 * taking into account the storage required by setOffHeap.
+	 */
+	protected WritableAdjacencyLists createLists(int[] degree) {
+		return WritableAdjacencyLists.create(degree, isWeighted, isOffHeap);
+	}
+
+	WritableAdjacencyLists getAdjacencyLists() {
+		return adjacencyLists;
+	}
+
+	/*
+	 * Return, for each node, its identifier in the file (null if the nodes are
+	 * identified by their index).
+	 */
+	int[] getLabels() {
+		return null;
+	}
+
+	long getM() {
+		return m;
+	}
+
+	int getN() {
+		return n;
+	}
+
+	boolean isOriented() {
+		return isOriented;
+	}
+
+	boolean isWeighted() {
+		return isWeighted;
+	}
+
+	abstract void readDegrees() throws IOException;
+
+	/*
+	 * Read the edges by means of the given number of threads at most.
+	 */
+	abstract void readEdges(int threads) throws IOException;
+
+	abstract void readHeader() throws IOException;
+
+	/*
+	 * Require the edges to be stored outside the Java heap (they are stored
+	 * there anyway if they do not fit into arrays).
+	 */
+	void setOffHeap(boolean isOffHeap) {
+		this.isOffHeap = isOffHeap;
+	}
+}
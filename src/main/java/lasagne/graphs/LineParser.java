@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/*
+ * This class parses the lines of a text graph file directly from its bytes,
+ * without creating any string. Each line is a sequence of integer tokens
+ * separated by spaces or tabs, while the lines starting with '#' or '%' are
+ * comments and are skipped. The parser reads a range of the file by means of
+ * positional reads, so that several parsers can scan disjoint ranges of the
+ * same file at the same time, or it reads a stream (for instance, the
+ * decompressed content of a compressed file).
+ */
+class LineParser {
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/*
+	 * Return the position of the first line starting at or after position p.
+	 */
+	static long getLineStart(FileChannel fc, long p, long end)
+			throws IOException {
+		if (p == 0) {
+			return 0;
+		}
+		LineParser lp = new LineParser(fc, p - 1, end);
+		int b = lp.read();
+		while (b != -1 && b != '\n') {
+			b = lp.read();
+		}
+		return lp.getPosition();
+	}
+
+	private FileChannel fc;
+	private InputStream in;
+	private long position;
+	private long end;
+	private byte[] buffer;
+	private ByteBuffer wrapper;
+	private int bufferPosition;
+	private int bufferLength;
+	private int[] tokens = new int[16];
+
+	/*
+	 * Create a parser for the bytes of the file from position start (included)
+	 * to position end (excluded).
+	 */
+	LineParser(FileChannel fc, long start, long end) {
+		this.fc = fc;
+		this.position = start;
+		this.end = end;
+		buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(end - start, 1))];
+		wrapper = ByteBuffer.wrap(buffer);
+	}
+
+	/*
+	 * Create a parser for all the bytes of a stream.
+	 */
+	LineParser(InputStream in) {
+		this.in = in;
+		this.end = Long.MAX_VALUE;
+		buffer = new byte[BUFFER_SIZE];
+	}
+
+	/*
+	 * Return the position of the next byte to be parsed.
+	 */
+	long getPosition() {
+		return position - bufferLength + bufferPosition;
+	}
+
+	/*
+	 * Return the tokens of the line parsed by the last invocation of
+	 * nextFullLine.
+	 */
+	int[] getTokens() {
+		return tokens;
+	}
+
+	/*
+	 * Parse the next line and store all its tokens into the array returned by
+	 * getTokens. Return the number of tokens (0 if the line is empty), or -1 if
+	 * there are no more lines.
+	 */
+	int nextFullLine() throws IOException {
+		return parseLine(tokens, true);
+	}
+
+	/*
+	 * Parse the next line and store its first values.length tokens into the
+	 * values array (further tokens are ignored). Return the number of stored
+	 * tokens (0 if the line is empty), or -1 if there are no more lines.
+	 */
+	int nextLine(int[] values) throws IOException {
+		return parseLine(values, false);
+	}
+
+	private int parseLine(int[] values, boolean grow) throws IOException {
+		int b = read();
+		while (b == '#' || b == '%') {
+			while (b != -1 && b != '\n') {
+				b = read();
+			}
+			b = read();
+		}
+		if (b == -1) {
+			return -1;
+		}
+		int count = 0;
+		while (b != -1 && b != '\n') {
+			if (b == ' ' || b == '\t' || b == '\r') {
+				b = read();
+			} else if (count < values.length || grow) {
+				if (count == values.length) {
+					values = Arrays.copyOf(values, 2 * values.length);
+					tokens = values;
+				}
+				boolean negative = false;
+				if (b == '-') {
+					negative = true;
+					b = read();
+				}
+				if (b < '0' || b > '9') {
+					throw new IOException("Unexpected character '" + (char) b
+							+ "' at position " + (getPosition() - 1));
+				}
+				int v = 0;
+				while (b >= '0' && b <= '9') {
+					v = v * 10 + (b - '0');
+					b = read();
+				}
+				if (b != -1 && b != '\n' && b != ' ' && b != '\t' && b != '\r') {
+					throw new IOException("Unexpected character '" + (char) b
+							+ "' at position " + (getPosition() - 1));
+				}
+				if (negative) {
+					v = -v;
+				}
+				values[count] = v;
+				count = count + 1;
+			} else {
+				while (b != -1 && b != '\n' && b != ' ' && b != '\t'
+						&& b != '\r') {
+					b = read();
+				}
+			}
+		}
+		return count;
+	}
+
+	private int read() throws IOException {
+		if (bufferPosition == bufferLength) {
+			if (position >= end) {
+				return -1;
+			}
+			int r;
+			if (in != null) {
+				r = in.read(buffer, 0, buffer.length);
+			} else {
+				wrapper.clear();
+				if (end - position < buffer.length) {
+					wrapper.limit((int) (end - position));
+				}
+				r = fc.read(wrapper, position);
+			}
+			if (r <= 0) {
+				return -1;
+			}
+			position = position + r;
+			bufferPosition = 0;
+			bufferLength = r;
+		}
+		return buffer[bufferPosition++] & 0xff;
+	}
+}
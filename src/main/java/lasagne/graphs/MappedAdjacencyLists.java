@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.nio.ByteBuffer;
+
+/*
+ * This class implements adjacency (or incidency) lists which are stored in a
+ * memory mapped binary graph file (see BinaryGraphFile). The lists have the
+ * same compressed sparse row form of ArrayAdjacencyLists, but they are read
+ * directly from the mapped pages: opening a graph requires no parsing, and the
+ * pages are shared by all the processes which map the same file. Since a
+ * single mapping cannot exceed 2GB, the file is mapped by means of several
+ * buffers, each one covering a chunk of 2^CHUNK_BITS bytes.
+ */
+public class MappedAdjacencyLists extends AdjacencyLists {
+	class MappedCursor extends Cursor {
+		private long position;
+		private long end;
+
+		public int getWeight() {
+			if (weightsBase < 0) {
+				return 1;
+			}
+			return getInt(weightsBase + 4 * (position - 1));
+		}
+
+		public boolean hasNext() {
+			return position < end;
+		}
+
+		public void moveTo(int u) {
+			position = getLong(offsetsBase + 8L * u);
+			end = getLong(offsetsBase + 8L * (u + 1));
+		}
+
+		public int nextHead() {
+			int h = getInt(headsBase + 4 * position);
+			position = position + 1;
+			return h;
+		}
+	}
+
+	static final int CHUNK_BITS = 30;
+	static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private ByteBuffer[] chunks;
+	private int n;
+	private long size;
+	private long offsetsBase;
+	private long headsBase;
+	private long weightsBase;
+
+	/*
+	 * Create the lists of n nodes whose offsets, heads, and weights sections
+	 * start at the given file positions (weightsBase is negative if the lists
+	 * are not weighted). All the sections must be aligned to 8 bytes.
+	 */
+	MappedAdjacencyLists(ByteBuffer[] chunks, int n, long size,
+			long offsetsBase, long headsBase, long weightsBase) {
+		this.chunks = chunks;
+		this.n = n;
+		this.size = size;
+		this.offsetsBase = offsetsBase;
+		this.headsBase = headsBase;
+		this.weightsBase = weightsBase;
+	}
+
+	public int getDegree(int u) {
+		return (int) (getLong(offsetsBase + 8L * (u + 1)) - getLong(offsetsBase
+				+ 8L * u));
+	}
+
+	public long getEdges() {
+		return size;
+	}
+
+	private int getInt(long p) {
+		return chunks[(int) (p >>> CHUNK_BITS)].getInt((int) (p & CHUNK_MASK));
+	}
+
+	private long getLong(long p) {
+		return chunks[(int) (p >>> CHUNK_BITS)].getLong((int) (p & CHUNK_MASK));
+	}
+
+	public int getN() {
+		return n;
+	}
+
+	public boolean isWeighted() {
+		return weightsBase >= 0;
+	}
+
+	public Cursor newCursor() {
+		return new MappedCursor();
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+
+/*
+ * This class executes up to 64 BFSes of an unweighted graph at once (see
+ * Then, Kaufmann, Chirigati, Hoang-Vu, Pham, Kemper, Neumann, Vo, 'The More
+ * the Merrier: Efficient Multi-Source Graph Traversal', VLDB 2015). Each node
+ * is associated with a word whose i-th bit denotes the i-th source: the
+ * frontier of a level is the set of nodes whose word is not zero, and the list
+ * of each of these nodes is scanned only once per level for all the sources.
+ * The nodes of the frontier and those reached from it are kept in two lists,
+ * so that each level costs time proportional to the edges it scans instead of
+ * the number of nodes (which matters for graphs with large diameter).
+ * For each source, the visit computes its eccentricity and, for each
+ * distance, the number of nodes at that distance from the sources.
+ */
+public class MultiSourceBFS {
+	// The maximum number of sources of a visit
+	public static final int MAX_SOURCES = 64;
+
+	private AdjacencyLists lists;
+	private int n;
+	// The sources which have reached each node, and the sources which have
+	// reached it at the current and at the next level
+	private long[] seen;
+	private long[] visit;
+	private long[] next;
+	// The nodes of the current frontier, and the nodes reached from it
+	private int[] frontier;
+	private int[] touched;
+	private int[] eccentricity = new int[MAX_SOURCES];
+	// The number of pairs (source, node) at each distance
+	private long[] pairs = new long[16];
+	private int maxDistance;
+
+	/*
+	 * Prepare the visits of the graph (which must be unweighted) following
+	 * the edges forward.
+	 */
+	public MultiSourceBFS(ArrayGraph graph) {
+		if (graph.isWeighted()) {
+			throw new IllegalArgumentException("The multi-source BFS is "
+					+ "defined only for unweighted graphs");
+		}
+		lists = graph.getAdjacencyLists();
+		n = graph.getN();
+		seen = new long[n];
+		visit = new long[n];
+		next = new long[n];
+		frontier = new int[n];
+		touched = new int[n];
+	}
+
+	/*
+	 * Return the eccentricity of the i-th source of the last visit.
+	 */
+	public int getEccentricity(int i) {
+		return eccentricity[i];
+	}
+
+	/*
+	 * Return the maximum eccentricity of the sources of the last visit.
+	 */
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+
+	/*
+	 * Return the number of pairs (source, node) at distance d found by the
+	 * last visit.
+	 */
+	public long getPairs(int d) {
+		return d <= maxDistance ? pairs[d] : 0;
+	}
+
+	/*
+	 * Execute a BFS from each of the count (at most MAX_SOURCES) nodes of
+	 * sources starting from position from.
+	 */
+	public void run(int[] sources, int from, int count) {
+		if (count > MAX_SOURCES) {
+			throw new IllegalArgumentException("At most " + MAX_SOURCES
+					+ " sources can be visited at once");
+		}
+		Arrays.fill(seen, 0);
+		Arrays.fill(visit, 0);
+		Arrays.fill(eccentricity, 0);
+		Arrays.fill(pairs, 0);
+		pairs[0] = count;
+		maxDistance = 0;
+		int size = 0;
+		for (int i = 0; i < count; i++) {
+			int s = sources[from + i];
+			if (visit[s] == 0) {
+				frontier[size++] = s;
+			}
+			seen[s] |= 1L << i;
+			visit[s] |= 1L << i;
+		}
+		AdjacencyLists.Cursor c = lists.newCursor();
+		boolean isActive = true;
+		for (int level = 1; isActive; level++) {
+			int t = 0;
+			for (int i = 0; i < size; i++) {
+				int v = frontier[i];
+				long bits = visit[v];
+				visit[v] = 0;
+				c.moveTo(v);
+				while (c.hasNext()) {
+					int h = c.nextHead();
+					if (next[h] == 0) {
+						touched[t++] = h;
+					}
+					next[h] |= bits;
+				}
+			}
+			long reached = 0;
+			long found = 0;
+			size = 0;
+			for (int i = 0; i < t; i++) {
+				int v = touched[i];
+				long bits = next[v] & ~seen[v];
+				next[v] = 0;
+				if (bits != 0) {
+					seen[v] |= bits;
+					reached |= bits;
+					found += Long.bitCount(bits);
+					visit[v] = bits;
+					touched[size++] = v;
+				}
+			}
+			int[] swap = frontier;
+			frontier = touched;
+			touched = swap;
+			isActive = reached != 0;
+			if (isActive) {
+				if (level == pairs.length) {
+					pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+				}
+				pairs[level] = found;
+				maxDistance = level;
+				while (reached != 0) {
+					eccentricity[Long.numberOfTrailingZeros(reached)] = level;
+					reached = reached & (reached - 1);
+				}
+			}
+		}
+	}
+}
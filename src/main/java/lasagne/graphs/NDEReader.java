@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * This class reads a graph from a NDE file by using all the available cores.
+ * The first line and the node lines are parsed sequentially: since they give
+ * the degree of each node, the lists can be allocated in advance. The edge
+ * section is then split into byte ranges (aligned to the beginning of the
+ * lines), each of which is parsed by a different thread in two passes. In the
+ * first pass, each thread counts how many edges of its range belong to each
+ * list: from these counts, each thread is assigned a disjoint slice of every
+ * list, so that in the second pass the threads can store the edges without
+ * any synchronization (the slices are relative to the beginning of each list,
+ * so that the counters are int values even if the lists contain more than 2^31
+ * edges). The edges of each list are stored in the same order as
+ * in the file, independently of the number of threads. A compressed NDE file
+ * (see CompressedGraphFile) cannot be split into ranges: in this case, the
+ * edges are parsed in one pass while another thread decompresses the file.
+ */
+class NDEReader extends GraphReader {
+	/*
+	 * This class parses a range of the edge section: in the first pass it
+	 * counts the edges of each list, in the second pass it stores them
+	 * starting from the positions (relative to the first edge of each list)
+	 * contained in the same array. If this array is null, the edges are
+	 * appended to the lists.
+	 */
+	private class EdgeWorker implements Callable<Void> {
+		private LineParser lp;
+		private int[] out;
+		private boolean fill;
+
+		EdgeWorker(LineParser lp, int[] out, boolean fill) {
+			this.lp = lp;
+			this.out = out;
+			this.fill = fill;
+		}
+
+		public Void call() throws IOException {
+			int[] values = new int[isWeighted ? 3 : 2];
+			int c = lp.nextLine(values);
+			while (c != -1) {
+				if (c > 0) {
+					if (c < values.length) {
+						throw new IOException("Malformed edge line before position "
+								+ lp.getPosition());
+					}
+					int s = values[0];
+					int t = values[1];
+					if (s < 0 || s >= n || t < 0 || t >= n) {
+						throw new IOException("Node index out of range before position "
+								+ lp.getPosition());
+					}
+					if (!fill) {
+						out[s]++;
+						if (!isOriented) {
+							out[t]++;
+						}
+					} else if (out == null) {
+						int w = isWeighted ? values[2] : 1;
+						adjacencyLists.add(s, t, w);
+						if (!isOriented) {
+							adjacencyLists.add(t, s, w);
+						}
+					} else {
+						int w = isWeighted ? values[2] : 1;
+						adjacencyLists.set(adjacencyLists.getOffset(s) + out[s]++,
+								t, w);
+						if (!isOriented) {
+							adjacencyLists.set(adjacencyLists.getOffset(t)
+									+ out[t]++, s, w);
+						}
+					}
+				}
+				c = lp.nextLine(values);
+			}
+			return null;
+		}
+	}
+
+	// Each thread parses at least this number of bytes
+	private static final long MIN_RANGE = 1 << 20;
+
+	private RandomAccessFile raf;
+	private FileChannel fc;
+	private InputStream is;
+	private LineParser header;
+
+	NDEReader(File file) throws IOException {
+		if (CompressedGraphFile.isCompressed(file.getName())) {
+			is = CompressedGraphFile.open(file);
+			header = new LineParser(is);
+		} else {
+			raf = new RandomAccessFile(file, "r");
+			fc = raf.getChannel();
+			header = new LineParser(fc, 0, fc.size());
+		}
+	}
+
+	/*
+	 * Transform the per-thread counts of the edges of each list into the
+	 * positions (relative to the first edge of the list) from which each
+	 * thread will store its edges.
+	 */
+	private void assignPositions(WritableAdjacencyLists lists, int[][] count)
+			throws IOException {
+		for (int u = 0; u < n; u++) {
+			long p = 0;
+			for (int t = 0; t < count.length; t++) {
+				int c = count[t][u];
+				count[t][u] = (int) p;
+				p = p + c;
+			}
+			if (p > lists.getDegree(u)) {
+				throw new IOException("Node " + u
+						+ " has more edges than its declared degree");
+			}
+			lists.setNext(u, lists.getOffset(u) + p);
+		}
+	}
+
+	void close() throws IOException {
+		if (is != null) {
+			is.close();
+		} else {
+			raf.close();
+		}
+	}
+
+	/*
+	 * Read the node lines, allocate the lists, and compute the number of
+	 * edges (the in-degrees of a directed graph are not used).
+	 */
+	void readDegrees() throws IOException {
+		int[] outDegree = new int[n];
+		int[] values = new int[isOriented ? 3 : 2];
+		m = 0;
+		for (int i = 0; i < n; i++) {
+			if (header.nextLine(values) < values.length) {
+				throw new IOException("Malformed node line " + (i + 2));
+			}
+			int u = values[0];
+			if (u < 0 || u >= n) {
+				throw new IOException("Node index out of range in line "
+						+ (i + 2));
+			}
+			outDegree[u] = values[1];
+			m = m + values[1];
+		}
+		if (!isOriented) {
+			m = m / 2;
+		}
+		adjacencyLists = createLists(outDegree);
+	}
+
+	void readEdges(int threads) throws IOException {
+		if (is != null) {
+			new EdgeWorker(header, null, true).call();
+			adjacencyLists.close();
+			return;
+		}
+		long start = header.getPosition();
+		long end = fc.size();
+		// Each thread needs one counter for each node: we never use more
+		// memory than the one required by the lists
+		int t = (int) Math.min(threads,
+				Math.max(1, Math.min((end - start) / MIN_RANGE,
+						adjacencyLists.getEdges() / Math.max(n, 1))));
+		long[] bound = new long[t + 1];
+		bound[0] = start;
+		for (int i = 1; i < t; i++) {
+			bound[i] = LineParser.getLineStart(fc, start + (end - start) / t
+					* i, end);
+		}
+		bound[t] = end;
+		int[][] out = new int[t][n];
+		ExecutorService pool = Executors.newFixedThreadPool(t);
+		try {
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < t; i++) {
+				workers.add(new EdgeWorker(new LineParser(fc, bound[i],
+						bound[i + 1]), out[i], false));
+			}
+			run(pool, workers);
+			assignPositions(adjacencyLists, out);
+			workers.clear();
+			for (int i = 0; i < t; i++) {
+				workers.add(new EdgeWorker(new LineParser(fc, bound[i],
+						bound[i + 1]), out[i], true));
+			}
+			run(pool, workers);
+		} finally {
+			pool.shutdown();
+		}
+		adjacencyLists.close();
+	}
+
+	/*
+	 * Read the first line, containing the number of nodes and the two flags.
+	 */
+	void readHeader() throws IOException {
+		int[] values = new int[3];
+		int c = header.nextLine(values);
+		if (c < 1) {
+			throw new IOException("Missing number of nodes");
+		}
+		n = values[0];
+		isOriented = c > 1 && values[1] == 1;
+		isWeighted = c > 2 && values[2] == 1;
+	}
+
+	private void run(ExecutorService pool, List<Callable<Void>> workers)
+			throws IOException {
+		try {
+			for (Future<Void> f : pool.invokeAll(workers)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted while reading the file", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+	}
+}
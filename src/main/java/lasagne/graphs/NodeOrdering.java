@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+
+/*
+ * This class computes permutations of the nodes of a graph which improve the
+ * locality of the visits, once the graph has been relabeled accordingly (see
+ * ArrayGraph.reorder). If nodes which are close in the graph have close
+ * indices, the distances (and the lists) of the nodes scanned one after the
+ * other by a visit lie in the same cache lines. Each method returns the order
+ * array: order[i] is the node which becomes node i. The edges of a directed
+ * graph are considered without their direction.
+ */
+public class NodeOrdering {
+	public static final String BFS = "bfs";
+	public static final String DEGREE = "degree";
+	public static final String RCM = "rcm";
+
+	/*
+	 * Order the nodes as they are reached by BFSes executed, in increasing
+	 * index order, from the nodes which have not yet been reached.
+	 */
+	public static int[] breadthFirst(ArrayGraph graph) {
+		int n = graph.getN();
+		int[] order = new int[n];
+		boolean[] reached = new boolean[n];
+		AdjacencyLists.Cursor[] cursors = getCursors(graph);
+		int tail = 0;
+		for (int s = 0; s < n; s++) {
+			if (!reached[s]) {
+				reached[s] = true;
+				order[tail++] = s;
+				for (int head = tail - 1; head < tail; head++) {
+					int u = order[head];
+					for (int c = 0; c < cursors.length; c++) {
+						cursors[c].moveTo(u);
+						while (cursors[c].hasNext()) {
+							int v = cursors[c].nextHead();
+							if (!reached[v]) {
+								reached[v] = true;
+								order[tail++] = v;
+							}
+						}
+					}
+				}
+			}
+		}
+		return order;
+	}
+
+	/*
+	 * Order the nodes by decreasing degree (nodes with the same degree keep
+	 * their relative order), so that the hubs, which are scanned by almost
+	 * every visit, are stored close to each other.
+	 */
+	public static int[] degree(ArrayGraph graph) {
+		int n = graph.getN();
+		long[] keys = new long[n];
+		for (int u = 0; u < n; u++) {
+			keys[u] = ((long) (Integer.MAX_VALUE - getDegree(graph, u)) << 32)
+					| u;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = (int) keys[i];
+		}
+		return order;
+	}
+
+	private static AdjacencyLists.Cursor[] getCursors(ArrayGraph graph) {
+		if (graph.isOriented()) {
+			return new AdjacencyLists.Cursor[] {
+					graph.getAdjacencyLists().newCursor(),
+					graph.getIncidencyLists().newCursor() };
+		}
+		return new AdjacencyLists.Cursor[] { graph.getAdjacencyLists()
+				.newCursor() };
+	}
+
+	private static int getDegree(ArrayGraph graph, int u) {
+		int d = graph.getAdjacencyLists().getDegree(u);
+		if (graph.isOriented()) {
+			d = d + graph.getIncidencyLists().getDegree(u);
+		}
+		return d;
+	}
+
+	/*
+	 * Return the order computed by the method with the given name (BFS,
+	 * DEGREE, or RCM).
+	 */
+	public static int[] getOrder(ArrayGraph graph, String method) {
+		if (method.equals(BFS)) {
+			return breadthFirst(graph);
+		} else if (method.equals(DEGREE)) {
+			return degree(graph);
+		} else if (method.equals(RCM)) {
+			return reverseCuthillMcKee(graph);
+		}
+		throw new IllegalArgumentException("Unknown node order " + method);
+	}
+
+	/*
+	 * Order the nodes according to the reverse Cuthill-McKee heuristic: each
+	 * connected component is visited in breadth-first order starting from one
+	 * of its nodes with minimum degree, the unreached neighbours of each node
+	 * are appended in increasing degree order, and the resulting order is
+	 * finally reversed. The heuristic reduces the bandwidth of the adjacency
+	 * matrix, that is, the maximum difference between the indices of the
+	 * endpoints of an edge.
+	 */
+	public static int[] reverseCuthillMcKee(ArrayGraph graph) {
+		int n = graph.getN();
+		int[] starts = degree(graph);
+		int[] order = new int[n];
+		boolean[] reached = new boolean[n];
+		AdjacencyLists.Cursor[] cursors = getCursors(graph);
+		long[] neighbours = new long[16];
+		int tail = 0;
+		for (int i = n - 1; i >= 0; i--) {
+			int s = starts[i];
+			if (!reached[s]) {
+				reached[s] = true;
+				order[tail++] = s;
+				for (int head = tail - 1; head < tail; head++) {
+					int u = order[head];
+					int k = 0;
+					for (int c = 0; c < cursors.length; c++) {
+						cursors[c].moveTo(u);
+						while (cursors[c].hasNext()) {
+							int v = cursors[c].nextHead();
+							if (!reached[v]) {
+								reached[v] = true;
+								if (k == neighbours.length) {
+									neighbours = Arrays.copyOf(neighbours,
+											2 * k);
+								}
+								long d = getDegree(graph, v);
+								neighbours[k++] = (d << 32) | v;
+							}
+						}
+					}
+					Arrays.sort(neighbours, 0, k);
+					for (int j = 0; j < k; j++) {
+						order[tail++] = (int) neighbours[j];
+					}
+				}
+			}
+		}
+		for (int i = 0; i < n / 2; i++) {
+			int tmp = order[i];
+			order[i] = order[n - 1 - i];
+			order[n - 1 - i] = tmp;
+		}
+		return order;
+	}
+}
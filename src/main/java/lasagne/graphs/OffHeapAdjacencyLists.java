@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*
+ * This class implements adjacency (or incidency) lists which are stored
+ * outside the Java heap, in the same compressed sparse row form of
+ * ArrayAdjacencyLists. The offsets, the heads, and the weights are stored in
+ * direct buffers, each one covering a chunk of 2^CHUNK_BITS bytes, and are
+ * addressed by long positions: in this way, the lists can contain more than
+ * 2^31 edges, and tens of gigabytes of edges are never scanned or moved by the
+ * garbage collector. Note that the size of the direct memory is limited by the
+ * -XX:MaxDirectMemorySize option of the virtual machine (by default, by the
+ * maximum heap size).
+ */
+public class OffHeapAdjacencyLists extends WritableAdjacencyLists {
+	class OffHeapCursor extends Cursor {
+		private long position;
+		private long end;
+
+		public int getWeight() {
+			if (weights == null) {
+				return 1;
+			}
+			return getInt(weights, position - 1);
+		}
+
+		public boolean hasNext() {
+			return position < end;
+		}
+
+		public void moveTo(int u) {
+			position = getLong(offsets, u);
+			end = getLong(offsets, u + 1);
+		}
+
+		public int nextHead() {
+			int h = getInt(heads, position);
+			position = position + 1;
+			return h;
+		}
+	}
+
+	static final int CHUNK_BITS = 30;
+	static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	/*
+	 * Allocate the direct buffers covering the given number of bytes.
+	 */
+	private static ByteBuffer[] allocate(long bytes) {
+		int c = (int) ((bytes + CHUNK_MASK) >>> CHUNK_BITS);
+		ByteBuffer[] chunks = new ByteBuffer[c];
+		for (int i = 0; i < chunks.length; i++) {
+			long size = Math.min(bytes - ((long) i << CHUNK_BITS),
+					1L << CHUNK_BITS);
+			chunks[i] = ByteBuffer.allocateDirect((int) size).order(
+					ByteOrder.nativeOrder());
+		}
+		return chunks;
+	}
+
+	private static int getInt(ByteBuffer[] chunks, long i) {
+		long p = i << 2;
+		return chunks[(int) (p >>> CHUNK_BITS)].getInt((int) (p & CHUNK_MASK));
+	}
+
+	private static long getLong(ByteBuffer[] chunks, long i) {
+		long p = i << 3;
+		return chunks[(int) (p >>> CHUNK_BITS)].getLong((int) (p & CHUNK_MASK));
+	}
+
+	private static void putInt(ByteBuffer[] chunks, long i, int v) {
+		long p = i << 2;
+		chunks[(int) (p >>> CHUNK_BITS)].putInt((int) (p & CHUNK_MASK), v);
+	}
+
+	private static void putLong(ByteBuffer[] chunks, long i, long v) {
+		long p = i << 3;
+		chunks[(int) (p >>> CHUNK_BITS)].putLong((int) (p & CHUNK_MASK), v);
+	}
+
+	private int n;
+	private ByteBuffer[] offsets;
+	private ByteBuffer[] heads;
+	private ByteBuffer[] weights;
+	// This field is used only while the lists are being filled: it contains,
+	// for each node, the number of edges already stored in its list
+	private int[] filled;
+
+	/*
+	 * Create the lists of n nodes whose lengths are given by the degree array.
+	 * The lists are then filled by means of the add method.
+	 */
+	public OffHeapAdjacencyLists(int[] degree, boolean isWeighted) {
+		n = degree.length;
+		offsets = allocate(8L * (n + 1));
+		long size = 0;
+		putLong(offsets, 0, 0);
+		for (int u = 0; u < n; u++) {
+			size = size + degree[u];
+			putLong(offsets, u + 1, size);
+		}
+		heads = allocate(4 * size);
+		if (isWeighted) {
+			weights = allocate(4 * size);
+		}
+		filled = new int[n];
+	}
+
+	public void add(int u, int h, int w) throws IOException {
+		long p = getLong(offsets, u) + filled[u];
+		if (p == getLong(offsets, u + 1)) {
+			throw new IOException("Node " + u
+					+ " has more edges than its declared degree");
+		}
+		set(p, h, w);
+		filled[u]++;
+	}
+
+	public void close() {
+		boolean full = true;
+		for (int u = 0; u < n && full; u++) {
+			full = filled[u] == getDegree(u);
+		}
+		if (!full) {
+			// The lists are compacted in place: the memory left free at the
+			// end of the buffers is released together with the lists
+			long p = 0;
+			for (int u = 0; u < n; u++) {
+				long start = getLong(offsets, u);
+				putLong(offsets, u, p);
+				for (long j = start; j < start + filled[u]; j++) {
+					putInt(heads, p, getInt(heads, j));
+					if (weights != null) {
+						putInt(weights, p, getInt(weights, j));
+					}
+					p = p + 1;
+				}
+			}
+			putLong(offsets, n, p);
+		}
+		filled = null;
+	}
+
+	public int getDegree(int u) {
+		return (int) (getLong(offsets, u + 1) - getLong(offsets, u));
+	}
+
+	public long getEdges() {
+		return getLong(offsets, n);
+	}
+
+	public int getN() {
+		return n;
+	}
+
+	long getOffset(int u) {
+		return getLong(offsets, u);
+	}
+
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	public Cursor newCursor() {
+		return new OffHeapCursor();
+	}
+
+	void set(long p, int h, int w) {
+		putInt(heads, p, h);
+		if (weights != null) {
+			putInt(weights, p, w);
+		}
+	}
+
+	void setNext(int u, long p) {
+		filled[u] = (int) (p - getLong(offsets, u));
+	}
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * This class executes a level-synchronous BFS by means of a fork-join pool.
+ * Each level is computed either top-down or bottom-up, as in the sequential
+ * direction-optimizing BFS (see ArrayGraph.directionOptimizingBFS): the
+ * frontier (or, in the bottom-up steps, the set of nodes) is split into
+ * chunks, and each chunk is processed by a task which appends the nodes it
+ * discovers to its own buffer. In the top-down steps, a node is claimed by
+ * setting its bit in the bitmap of the visited nodes with a compare-and-set,
+ * so that exactly one task writes its distance and its predecessor. At the
+ * end of each level, the buffers are appended to the queue of the workspace.
+ */
+class ParallelBFS {
+	/*
+	 * This class implements the task which processes the chunks from to
+	 * (excluded), by splitting them in two halves.
+	 */
+	private class ChunkTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		ChunkTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ChunkTask(from, middle), new ChunkTask(middle,
+						to));
+			} else if (phase == TOP_DOWN) {
+				topDown(from);
+			} else if (phase == BOTTOM_UP) {
+				bottomUp(from);
+			} else {
+				mark(from);
+			}
+		}
+	}
+
+	// The minimum number of frontier nodes processed by a chunk
+	private static final int GRAIN = 1024;
+	private static final int TOP_DOWN = 0;
+	private static final int BOTTOM_UP = 1;
+	private static final int MARK = 2;
+	private static final int UNMARK = 3;
+
+	/*
+	 * Execute a BFS from s which follows the lists out by means of the pool,
+	 * and store the results in the workspace. The lists in are the transpose
+	 * of out, used by the bottom-up steps (which are disabled if in is null).
+	 */
+	static void visit(ForkJoinPool pool, int s, AdjacencyLists out,
+			AdjacencyLists in, VisitWorkspace ws) {
+		new ParallelBFS(pool, out, in, ws).run(s);
+	}
+
+	private ForkJoinPool pool;
+	private AdjacencyLists out;
+	private AdjacencyLists in;
+	private VisitWorkspace ws;
+	private int n;
+	private int maxChunks;
+	private AdjacencyLists.Cursor[] cursors;
+	private AdjacencyLists.Cursor[] inCursors;
+	// The current step: its phase, the bitmap it marks, the range of the
+	// queue it processes, the number of chunks and the level
+	private int phase;
+	private AtomicLongArray bitmap;
+	private int head;
+	private int end;
+	private int chunks;
+	private int level;
+
+	private ParallelBFS(ForkJoinPool pool, AdjacencyLists out,
+			AdjacencyLists in, VisitWorkspace ws) {
+		this.pool = pool;
+		this.out = out;
+		this.in = in;
+		this.ws = ws;
+		n = ws.getN();
+		maxChunks = 8 * pool.getParallelism();
+		cursors = new AdjacencyLists.Cursor[maxChunks];
+		inCursors = new AdjacencyLists.Cursor[maxChunks];
+		if (ws.visitedBits == null) {
+			ws.visitedBits = new AtomicLongArray((n + 63) >>> 6);
+			ws.frontierBits = new AtomicLongArray((n + 63) >>> 6);
+			ws.buffers = new int[maxChunks][];
+			ws.bufferSizes = new int[maxChunks];
+			ws.bufferEdges = new long[maxChunks];
+		} else if (ws.buffers.length < maxChunks) {
+			ws.buffers = Arrays.copyOf(ws.buffers, maxChunks);
+			ws.bufferSizes = new int[maxChunks];
+			ws.bufferEdges = new long[maxChunks];
+		}
+	}
+
+	/*
+	 * Append v, discovered by chunk c, to the buffer of the chunk.
+	 */
+	private void append(int c, int v) {
+		int[] buffer = ws.buffers[c];
+		if (buffer == null) {
+			buffer = new int[GRAIN];
+			ws.buffers[c] = buffer;
+		} else if (ws.bufferSizes[c] == buffer.length) {
+			buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+			ws.buffers[c] = buffer;
+		}
+		buffer[ws.bufferSizes[c]++] = v;
+		ws.bufferEdges[c] += out.getDegree(v);
+	}
+
+	/*
+	 * Compute the nodes of chunk c (a range of nodes starting at a multiple of
+	 * 64, so that each word of the bitmaps belongs to one chunk) which have an
+	 * in-neighbor in the frontier.
+	 */
+	private void bottomUp(int c) {
+		int words = (n + 63) >>> 6;
+		int from = (int) ((long) words * c / chunks);
+		int to = (int) ((long) words * (c + 1) / chunks);
+		AtomicLongArray visited = ws.visitedBits;
+		AtomicLongArray frontier = ws.frontierBits;
+		AdjacencyLists.Cursor inCursor = inCursors[c];
+		if (inCursor == null) {
+			inCursor = in.newCursor();
+			inCursors[c] = inCursor;
+		}
+		for (int w = from; w < to; w++) {
+			long word = visited.get(w);
+			if (word == -1L) {
+				continue;
+			}
+			long discovered = 0;
+			for (int v = w << 6; v < Math.min(n, (w + 1) << 6); v++) {
+				if ((word & (1L << v)) == 0) {
+					inCursor.moveTo(v);
+					while (inCursor.hasNext()) {
+						int u = inCursor.nextHead();
+						if ((frontier.get(u >>> 6) & (1L << u)) != 0) {
+							discovered |= 1L << v;
+							visit(v, u);
+							append(c, v);
+							break;
+						}
+					}
+				}
+			}
+			if (discovered != 0) {
+				visited.set(w, word | discovered);
+			}
+		}
+	}
+
+	/*
+	 * Append the buffers of the chunks to the queue, starting from tail, and
+	 * return the new tail.
+	 */
+	private int collect(int chunks, int tail) {
+		for (int c = 0; c < chunks; c++) {
+			if (ws.bufferSizes[c] > 0) {
+				System.arraycopy(ws.buffers[c], 0, ws.queue, tail,
+						ws.bufferSizes[c]);
+				tail = tail + ws.bufferSizes[c];
+			}
+		}
+		return tail;
+	}
+
+	/*
+	 * Execute the current phase on the given number of chunks.
+	 */
+	private void execute(int phase, int chunks) {
+		this.phase = phase;
+		this.chunks = chunks;
+		for (int c = 0; c < chunks; c++) {
+			ws.bufferSizes[c] = 0;
+			ws.bufferEdges[c] = 0;
+		}
+		pool.invoke(new ChunkTask(0, chunks));
+	}
+
+	private long frontierEdges(int chunks) {
+		long edges = 0;
+		for (int c = 0; c < chunks; c++) {
+			edges = edges + ws.bufferEdges[c];
+		}
+		return edges;
+	}
+
+	/*
+	 * Return the number of chunks of a range of the queue with the given size.
+	 */
+	private int getChunks(int size) {
+		return Math.max(1, Math.min(maxChunks, size / GRAIN));
+	}
+
+	/*
+	 * Set (or clear) the bits of the nodes of the queue in chunk c of the
+	 * current range.
+	 */
+	private void mark(int c) {
+		int from = head + (int) ((long) (end - head) * c / chunks);
+		int to = head + (int) ((long) (end - head) * (c + 1) / chunks);
+		int[] queue = ws.queue;
+		for (int i = from; i < to; i++) {
+			int v = queue[i];
+			if (phase == UNMARK) {
+				bitmap.set(v >>> 6, 0);
+			} else {
+				long bit = 1L << v;
+				long word = bitmap.get(v >>> 6);
+				while ((word & bit) == 0
+						&& !bitmap.compareAndSet(v >>> 6, word, word | bit)) {
+					word = bitmap.get(v >>> 6);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Mark (or unmark) the nodes of the queue from head to end (excluded) in
+	 * the bitmap.
+	 */
+	private void mark(AtomicLongArray bitmap, int phase, int head, int end) {
+		this.bitmap = bitmap;
+		this.head = head;
+		this.end = end;
+		execute(phase, getChunks(end - head));
+	}
+
+	private void run(int s) {
+		ws.clear(s);
+		int[] queue = ws.queue;
+		int head = 0;
+		int tail = 1;
+		queue[0] = s;
+		ws.visitedBits.set(s >>> 6, 1L << s);
+		long frontierEdges = out.getDegree(s);
+		long unvisitedEdges = out.getEdges() - frontierEdges;
+		int previousSize = 0;
+		boolean isBottomUp = false;
+		int from = 0;
+		for (level = 1; head < tail; level++) {
+			int end = tail;
+			int size = end - head;
+			from = head;
+			if (in != null) {
+				if (!isBottomUp) {
+					isBottomUp = frontierEdges > unvisitedEdges
+							/ ArrayGraph.ALPHA
+							&& frontierEdges > n / ArrayGraph.BETA;
+				} else {
+					isBottomUp = size >= previousSize
+							|| size >= n / ArrayGraph.BETA;
+				}
+			}
+			int stepChunks;
+			if (isBottomUp) {
+				mark(ws.frontierBits, MARK, head, end);
+				stepChunks = Math.min(maxChunks, (n + 63) >>> 6);
+				execute(BOTTOM_UP, stepChunks);
+				// The buffers are overwritten by the next phase
+				tail = collect(stepChunks, tail);
+				mark(ws.frontierBits, UNMARK, head, end);
+			} else {
+				this.head = head;
+				this.end = end;
+				stepChunks = getChunks(size);
+				execute(TOP_DOWN, stepChunks);
+				tail = collect(stepChunks, tail);
+			}
+			frontierEdges = frontierEdges(stepChunks);
+			unvisitedEdges -= frontierEdges;
+			previousSize = size;
+			head = end;
+		}
+		ws.visited = tail;
+		ws.finish(from, level - 2);
+		mark(ws.visitedBits, UNMARK, 0, tail);
+	}
+
+	/*
+	 * Scan the lists of the nodes of the frontier in chunk c, and claim their
+	 * unvisited neighbors.
+	 */
+	private void topDown(int c) {
+		int from = head + (int) ((long) (end - head) * c / chunks);
+		int to = head + (int) ((long) (end - head) * (c + 1) / chunks);
+		int[] queue = ws.queue;
+		AtomicLongArray visited = ws.visitedBits;
+		AdjacencyLists.Cursor cursor = cursors[c];
+		if (cursor == null) {
+			cursor = out.newCursor();
+			cursors[c] = cursor;
+		}
+		for (int i = from; i < to; i++) {
+			int u = queue[i];
+			cursor.moveTo(u);
+			while (cursor.hasNext()) {
+				int v = cursor.nextHead();
+				long bit = 1L << v;
+				long word = visited.get(v >>> 6);
+				while ((word & bit) == 0) {
+					if (visited.compareAndSet(v >>> 6, word, word | bit)) {
+						visit(v, u);
+						append(c, v);
+						break;
+					}
+					word = visited.get(v >>> 6);
+				}
+			}
+		}
+	}
+
+	/*
+	 * Record that v has been reached from u at the current level.
+	 */
+	private void visit(int v, int u) {
+		ws.stamp[v] = ws.epoch;
+		ws.dist[v] = level;
+		ws.pred[v] = u;
+	}
+}
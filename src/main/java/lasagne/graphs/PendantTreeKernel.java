@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+
+/*
+ * This class computes the kernel of an undirected unweighted graph, that is,
+ * the graph obtained by repeatedly removing the nodes of degree one. The
+ * removed nodes form trees hanging from the nodes of the kernel: for each node
+ * x of the kernel, the height h(x) of its hanging trees (the distance from x
+ * of the farthest removed node attached to it) and their inner diameter (the
+ * maximum distance between two nodes of the trees, x included) are recorded.
+ * The diameter of a connected graph is then the maximum between the inner
+ * diameters and the maximum of d(x, y) + h(x) + h(y) over the pairs of
+ * distinct nodes x and y of the kernel (see IFub.kernelized). A tree is
+ * reduced to a single node, whose inner diameter is the diameter of the tree.
+ */
+public class PendantTreeKernel {
+	private ArrayGraph kernel;
+	private int[] height;
+	private int[] innerDiameter;
+
+	public PendantTreeKernel(ArrayGraph graph) {
+		if (graph.isOriented() || graph.isWeighted()) {
+			throw new IllegalArgumentException("The kernel is defined only "
+					+ "for undirected unweighted graphs");
+		}
+		int n = graph.getN();
+		AdjacencyLists lists = graph.getAdjacencyLists();
+		AdjacencyLists.Cursor c = lists.newCursor();
+		int[] degree = new int[n];
+		int[] stack = new int[n];
+		int top = 0;
+		for (int u = 0; u < n; u++) {
+			degree[u] = lists.getDegree(u);
+			if (degree[u] == 1) {
+				stack[top++] = u;
+			}
+		}
+		int[] h = new int[n];
+		int[] second = new int[n];
+		int[] inner = new int[n];
+		boolean[] removed = new boolean[n];
+		int removedNodes = 0;
+		while (top > 0) {
+			int v = stack[--top];
+			// The last node of a tree is left with no edges and is kept
+			if (degree[v] == 1) {
+				c.moveTo(v);
+				int p = c.nextHead();
+				while (removed[p]) {
+					p = c.nextHead();
+				}
+				removed[v] = true;
+				removedNodes = removedNodes + 1;
+				degree[v] = 0;
+				degree[p] = degree[p] - 1;
+				// Hang the trees of v from p
+				int hv = h[v] + 1;
+				if (hv > h[p]) {
+					second[p] = h[p];
+					h[p] = hv;
+				} else if (hv > second[p]) {
+					second[p] = hv;
+				}
+				inner[p] = Math.max(Math.max(inner[p], inner[v]), h[p]
+						+ second[p]);
+				if (degree[p] == 1) {
+					stack[top++] = p;
+				}
+			}
+		}
+		stack = null;
+		second = null;
+		int k = n - removedNodes;
+		int[] index = new int[n];
+		int[] kernelDegree = new int[k];
+		int[] labels = new int[k];
+		height = new int[k];
+		innerDiameter = new int[k];
+		long edges = 0;
+		int x = 0;
+		for (int u = 0; u < n; u++) {
+			if (!removed[u]) {
+				index[u] = x;
+				kernelDegree[x] = degree[u];
+				labels[x] = graph.getLabel(u);
+				height[x] = h[u];
+				innerDiameter[x] = inner[u];
+				edges = edges + degree[u];
+				x = x + 1;
+			}
+		}
+		degree = null;
+		h = null;
+		inner = null;
+		WritableAdjacencyLists kernelLists = WritableAdjacencyLists.create(
+				kernelDegree, false, graph.isOffHeap());
+		try {
+			for (int u = 0; u < n; u++) {
+				if (!removed[u]) {
+					c.moveTo(u);
+					while (c.hasNext()) {
+						int v = c.nextHead();
+						if (!removed[v]) {
+							kernelLists.add(index[u], index[v], 1);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			// The degrees of the kernel have been computed while removing
+			// the nodes
+			throw new IllegalStateException(e);
+		}
+		kernelLists.close();
+		kernel = new ArrayGraph(kernelLists, edges / 2, labels);
+		// The kernel is stored and visited as the graph it derives from
+		kernel.setOffHeap(graph.isOffHeap());
+		kernel.setThreads(graph.getThreads());
+		if (graph.getAdjacencyLists() instanceof CompressedAdjacencyLists) {
+			kernel.compress();
+		}
+	}
+
+	/*
+	 * Return the height of the trees hanging from node x of the kernel.
+	 */
+	public int getHeight(int x) {
+		return height[x];
+	}
+
+	/*
+	 * Return the maximum distance between two nodes of the trees hanging from
+	 * node x of the kernel (x included).
+	 */
+	public int getInnerDiameter(int x) {
+		return innerDiameter[x];
+	}
+
+	/*
+	 * Return the kernel, whose nodes are labeled with the identifiers of the
+	 * corresponding nodes of the graph.
+	 */
+	public ArrayGraph getKernel() {
+		return kernel;
+	}
+}
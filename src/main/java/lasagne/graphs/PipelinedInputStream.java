@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * This class reads an input stream (typically, a decompressing one) by means
+ * of a separate thread, which fills a fixed number of buffers and hands them
+ * to the reader through a blocking queue. In this way, decompressing the next
+ * buffers and parsing the current one are executed at the same time. The
+ * buffers are recycled, so that no memory is allocated after the creation of
+ * the stream.
+ */
+class PipelinedInputStream extends InputStream {
+	private static class Chunk {
+		byte[] data;
+		int length;
+
+		Chunk(int size) {
+			data = new byte[size];
+		}
+	}
+
+	/*
+	 * This class fills the buffers by reading the source stream.
+	 */
+	private class Producer implements Runnable {
+		public void run() {
+			try {
+				boolean end = false;
+				while (!end) {
+					Chunk c = free.take();
+					c.length = 0;
+					try {
+						int r = 0;
+						while (r != -1 && c.length < c.data.length) {
+							r = source.read(c.data, c.length, c.data.length
+									- c.length);
+							if (r > 0) {
+								c.length = c.length + r;
+							}
+						}
+						end = r == -1;
+					} catch (IOException e) {
+						error = e;
+						end = true;
+					}
+					full.put(c);
+					if (end && c.length > 0) {
+						Chunk last = free.take();
+						last.length = 0;
+						full.put(last);
+					}
+				}
+			} catch (InterruptedException e) {
+				// The stream has been closed by the reader
+			}
+		}
+	}
+
+	private static final int BUFFER_SIZE = 1 << 20;
+	private static final int BUFFERS = 4;
+
+	private InputStream source;
+	private BlockingQueue<Chunk> free;
+	private BlockingQueue<Chunk> full;
+	private Thread producer;
+	private volatile IOException error;
+	private Chunk current;
+	private int position;
+	private boolean finished;
+
+	PipelinedInputStream(InputStream source) {
+		this.source = source;
+		free = new ArrayBlockingQueue<Chunk>(BUFFERS);
+		full = new ArrayBlockingQueue<Chunk>(BUFFERS);
+		for (int i = 0; i < BUFFERS; i++) {
+			free.add(new Chunk(BUFFER_SIZE));
+		}
+		producer = new Thread(new Producer(), "LASAGNE decompressor");
+		producer.setDaemon(true);
+		producer.start();
+	}
+
+	/*
+	 * Stop the producer and close the source. The producer is waited for
+	 * before closing the source, since it could still be reading from it (the
+	 * interruption is noticed at the latest when the current buffer is full).
+	 */
+	public void close() throws IOException {
+		producer.interrupt();
+		boolean interrupted = false;
+		while (producer.isAlive()) {
+			try {
+				producer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		source.close();
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/*
+	 * Make sure that the current buffer contains at least one byte to be read:
+	 * return false if the end of the stream has been reached.
+	 */
+	private boolean fill() throws IOException {
+		while (!finished && (current == null || position == current.length)) {
+			if (current != null) {
+				free.add(current);
+				current = null;
+			}
+			try {
+				current = full.take();
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while reading the stream", e);
+			}
+			position = 0;
+			if (current.length == 0) {
+				finished = true;
+				if (error != null) {
+					throw error;
+				}
+			}
+		}
+		return !finished;
+	}
+
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return current.data[position++] & 0xff;
+	}
+
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int r = Math.min(len, current.length - position);
+		System.arraycopy(current.data, position, b, off, r);
+		position = position + r;
+		return r;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * This class computes the incidency lists of a directed graph from its
+ * adjacency lists by using all the available cores. The nodes are split into
+ * ranges containing about the same number of edges, each of which is scanned
+ * by a different thread in two passes, as done by NDEReader with the ranges of
+ * a file: in the first pass, each thread counts how many edges of its range
+ * enter each node, and in the second pass it stores them into its own slice of
+ * each incidency list. The incidency list of each node contains the tails of
+ * its entering edges in increasing order.
+ */
+class Transposer {
+	/*
+	 * This class scans the adjacency lists of a range of nodes: in the first
+	 * pass it counts the edges entering each node, in the second pass it
+	 * stores them starting from the positions (relative to the first edge of
+	 * each list) contained in the same array.
+	 */
+	private static class EdgeWorker implements Callable<Void> {
+		private AdjacencyLists lists;
+		private WritableAdjacencyLists transposed;
+		private int start;
+		private int end;
+		private int[] count;
+
+		EdgeWorker(AdjacencyLists lists, WritableAdjacencyLists transposed,
+				int start, int end, int[] count) {
+			this.lists = lists;
+			this.transposed = transposed;
+			this.start = start;
+			this.end = end;
+			this.count = count;
+		}
+
+		public Void call() {
+			AdjacencyLists.Cursor c = lists.newCursor();
+			for (int u = start; u < end; u++) {
+				c.moveTo(u);
+				while (c.hasNext()) {
+					int h = c.nextHead();
+					if (transposed == null) {
+						count[h]++;
+					} else {
+						transposed.set(transposed.getOffset(h) + count[h]++, u,
+								c.getWeight());
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	// Each thread scans at least this number of edges
+	private static final long MIN_RANGE = 1 << 16;
+
+	private static void run(ExecutorService pool,
+			List<Callable<Void>> workers) {
+		try {
+			for (Future<Void> f : pool.invokeAll(workers)) {
+				f.get();
+			}
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(
+					"Interrupted while transposing the lists", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/*
+	 * Return the transpose of the given lists, by means of the given number of
+	 * threads at most. The new lists are stored outside the heap if required
+	 * (or if they do not fit into arrays).
+	 */
+	static WritableAdjacencyLists transpose(AdjacencyLists lists,
+			boolean isOffHeap, int threads) {
+		int n = lists.getN();
+		long size = lists.getEdges();
+		// Each thread needs one counter for each node: we never use more memory
+		// than the one required by the lists
+		int t = (int) Math.min(threads,
+				Math.max(1, Math.min(size / MIN_RANGE, size / Math.max(n, 1))));
+		int[] bound = new int[t + 1];
+		long edges = 0;
+		int i = 1;
+		for (int u = 0; u < n && i < t; u++) {
+			edges = edges + lists.getDegree(u);
+			if (edges >= size / t * i) {
+				bound[i++] = u + 1;
+			}
+		}
+		while (i <= t) {
+			bound[i++] = n;
+		}
+		int[][] count = new int[t][n];
+		ExecutorService pool = Executors.newFixedThreadPool(t);
+		try {
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (i = 0; i < t; i++) {
+				workers.add(new EdgeWorker(lists, null, bound[i], bound[i + 1],
+						count[i]));
+			}
+			run(pool, workers);
+			int[] degree = new int[n];
+			for (int h = 0; h < n; h++) {
+				int p = 0;
+				for (i = 0; i < t; i++) {
+					int c = count[i][h];
+					count[i][h] = p;
+					p = p + c;
+				}
+				degree[h] = p;
+			}
+			WritableAdjacencyLists transposed = WritableAdjacencyLists.create(
+					degree, lists.isWeighted(), isOffHeap);
+			for (int h = 0; h < n; h++) {
+				transposed.setNext(h, transposed.getOffset(h) + degree[h]);
+			}
+			degree = null;
+			workers.clear();
+			for (i = 0; i < t; i++) {
+				workers.add(new EdgeWorker(lists, transposed, bound[i],
+						bound[i + 1], count[i]));
+			}
+			run(pool, workers);
+			transposed.close();
+			return transposed;
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
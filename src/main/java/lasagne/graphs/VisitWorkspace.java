@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * This class contains the arrays used by a visit of a graph with n nodes (see
+ * ArrayGraph.visit(int, VisitWorkspace)), so that they can be reused by the
+ * following visits without allocating memory. The distances and the
+ * predecessors of the nodes are valid only if the nodes have been stamped
+ * with the epoch of the current visit, which is incremented at the beginning
+ * of each visit: in this way, the arrays are not initialized again. These
+ * arrays are allocated only by the first visit which needs them: a workspace
+ * used only to compute eccentricities (see ArrayGraph.eccentricity) contains
+ * just the queue and a bitmap of the visited nodes. A workspace can be used
+ * by one thread at a time, and its content is overwritten by the next visit.
+ */
+public class VisitWorkspace {
+	// The initial size of the heap of a Dijkstra visit
+	private static final int INITIAL_HEAP_SIZE = 1 << 10;
+
+	private int n;
+	// The nodes reached by the visit, in nondecreasing order of distance
+	int[] queue;
+	int visited;
+	// The eccentricity of the source and its farthest node with the smallest
+	// identifier
+	int eccentricity;
+	int farthest;
+	int[] dist;
+	int[] pred;
+	int[] stamp;
+	int epoch;
+	// The visited nodes and the frontier of the bottom-up steps of a BFS, as
+	// bitmaps (the visited nodes are cleared at the end of the visit)
+	long[] seen;
+	long[] frontier;
+	// The 4-ary heap of a Dijkstra visit, the distance of each of its
+	// entries, and the position of each node in it: a 4-ary heap is
+	// shallower than a binary one, and the distances of the four sons of an
+	// entry are contiguous in memory
+	int[] heap;
+	int[] heapKey;
+	int[] heapPosition;
+	int heapSize;
+	// The circular buckets of a Dial visit, as doubly linked lists of the
+	// nodes whose distance modulo the number of buckets is the index of the
+	// bucket
+	int[] bucketHead;
+	int[] bucketNext;
+	int[] bucketPrevious;
+	// The bitmaps of the visited nodes and of the frontier, and the buffers
+	// of the chunks of a parallel BFS (see ParallelBFS)
+	AtomicLongArray visitedBits;
+	AtomicLongArray frontierBits;
+	int[][] buffers;
+	int[] bufferSizes;
+	long[] bufferEdges;
+	// The tentative distances and predecessors of a delta-stepping visit
+	// (see DeltaStepping), its frontier, and the keys used to sort the nodes
+	// of each bucket
+	AtomicLongArray tentative;
+	int[] deltaFrontier;
+	long[] deltaKeys;
+	// The cursors used by the visit, one for each lists it scans
+	private AdjacencyLists[] lists = new AdjacencyLists[2];
+	private AdjacencyLists.Cursor[] cursors = new AdjacencyLists.Cursor[2];
+
+	public VisitWorkspace(int n) {
+		this.n = n;
+		queue = new int[n];
+	}
+
+	/*
+	 * Insert v into the b-th bucket.
+	 */
+	void bucketInsert(int v, int b) {
+		int head = bucketHead[b];
+		bucketNext[v] = head;
+		bucketPrevious[v] = -1;
+		if (head >= 0) {
+			bucketPrevious[head] = v;
+		}
+		bucketHead[b] = v;
+	}
+
+	/*
+	 * Remove v from the b-th bucket.
+	 */
+	void bucketRemove(int v, int b) {
+		int next = bucketNext[v];
+		int previous = bucketPrevious[v];
+		if (previous >= 0) {
+			bucketNext[previous] = next;
+		} else {
+			bucketHead[b] = next;
+		}
+		if (next >= 0) {
+			bucketPrevious[next] = previous;
+		}
+	}
+
+	/*
+	 * Start a new visit from s.
+	 */
+	void clear(int s) {
+		if (stamp == null) {
+			dist = new int[n];
+			pred = new int[n];
+			stamp = new int[n];
+		}
+		nextEpoch();
+		stamp[s] = epoch;
+		dist[s] = 0;
+		pred[s] = -1;
+	}
+
+	/*
+	 * Empty the given number of buckets, which are allocated the first time
+	 * (or when more buckets are needed).
+	 */
+	void clearBuckets(int buckets) {
+		if (bucketHead == null || bucketHead.length < buckets) {
+			bucketHead = new int[buckets];
+		}
+		if (bucketNext == null) {
+			bucketNext = new int[n];
+			bucketPrevious = new int[n];
+		}
+		Arrays.fill(bucketHead, 0, buckets, -1);
+	}
+
+	/*
+	 * Start a new visit which computes only the eccentricity of the source:
+	 * the distances of the previous visit are no longer valid.
+	 */
+	void clearEccentricity() {
+		nextEpoch();
+	}
+
+	/*
+	 * Complete a visit whose last level (of the given distance) starts at
+	 * position from of the queue.
+	 */
+	void finish(int from, int eccentricity) {
+		this.eccentricity = eccentricity;
+		farthest = queue[from];
+		for (int i = from + 1; i < visited; i++) {
+			if (queue[i] < farthest) {
+				farthest = queue[i];
+			}
+		}
+	}
+
+	/*
+	 * Complete a visit whose reached nodes have been appended to the queue in
+	 * nondecreasing order of distance.
+	 */
+	void finishByDistance() {
+		int e = dist[queue[visited - 1]];
+		int from = visited - 1;
+		while (from > 0 && dist[queue[from - 1]] == e) {
+			from--;
+		}
+		finish(from, e);
+	}
+
+	/*
+	 * Return a cursor on the given lists, which is created only the first
+	 * time.
+	 */
+	AdjacencyLists.Cursor getCursor(AdjacencyLists adjacencyLists) {
+		if (lists[0] == adjacencyLists) {
+			return cursors[0];
+		}
+		if (lists[1] != adjacencyLists) {
+			// Replace the least recently created cursor
+			lists[1] = lists[0];
+			cursors[1] = cursors[0];
+			lists[0] = adjacencyLists;
+			cursors[0] = adjacencyLists.newCursor();
+			return cursors[0];
+		}
+		return cursors[1];
+	}
+
+	/*
+	 * Return the distance of v from the source of the last visit (-1 if v has
+	 * not been reached, or if the visit computed only the eccentricity).
+	 */
+	public int getDistance(int v) {
+		return stamp != null && stamp[v] == epoch ? dist[v] : -1;
+	}
+
+	/*
+	 * Return the eccentricity of the source of the last visit, that is, the
+	 * distance of the farthest node reached.
+	 */
+	public int getEccentricity() {
+		return eccentricity;
+	}
+
+	/*
+	 * Return the node with the smallest identifier among the farthest nodes
+	 * reached by the last visit.
+	 */
+	public int getFarthestNode() {
+		return farthest;
+	}
+
+	/*
+	 * Return the node in the middle of the shortest path from the source of
+	 * the last visit to target (see ArrayUtils.getMiddleNode), which must
+	 * have been reached.
+	 */
+	public int getMiddleNode(int target) {
+		int d = dist[target];
+		int c = 0;
+		while (c < d / 2) {
+			c = c + dist[target] - dist[pred[target]];
+			target = pred[target];
+		}
+		return target;
+	}
+
+	public int getN() {
+		return n;
+	}
+
+	/*
+	 * Return the predecessor of v in the shortest path tree of the last visit
+	 * (-1 if v is the source or it has not been reached).
+	 */
+	public int getPredecessor(int v) {
+		return stamp != null && stamp[v] == epoch ? pred[v] : -1;
+	}
+
+	/*
+	 * Return the i-th node reached by the last visit, in nondecreasing order
+	 * of distance (the first one is the source).
+	 */
+	public int getVisitedNode(int i) {
+		return queue[i];
+	}
+
+	/*
+	 * Return the number of nodes reached by the last visit.
+	 */
+	public int getVisitedNodes() {
+		return visited;
+	}
+
+	/*
+	 * Move v up in the heap, since its distance has decreased.
+	 */
+	void heapDecrease(int v) {
+		int i = heapPosition[v];
+		int d = dist[v];
+		while (i > 0 && heapKey[(i - 1) >>> 2] > d) {
+			int father = (i - 1) >>> 2;
+			heap[i] = heap[father];
+			heapKey[i] = heapKey[father];
+			heapPosition[heap[i]] = i;
+			i = father;
+		}
+		heap[i] = v;
+		heapKey[i] = d;
+		heapPosition[v] = i;
+	}
+
+	/*
+	 * Insert v into the heap, which is allocated the first time and grows
+	 * with the number of nodes it contains.
+	 */
+	void heapInsert(int v) {
+		if (heap == null) {
+			heap = new int[Math.min(n, INITIAL_HEAP_SIZE)];
+			heapKey = new int[heap.length];
+			heapPosition = new int[n];
+		} else if (heapSize == heap.length) {
+			int size = (int) Math.min(n, 2L * heapSize);
+			heap = Arrays.copyOf(heap, size);
+			heapKey = Arrays.copyOf(heapKey, size);
+		}
+		heapPosition[v] = heapSize++;
+		heapDecrease(v);
+	}
+
+	/*
+	 * Remove and return the node of the heap with minimum distance.
+	 */
+	int heapPoll() {
+		int minimum = heap[0];
+		heapPosition[minimum] = -1;
+		heapSize--;
+		if (heapSize > 0) {
+			int v = heap[heapSize];
+			int d = heapKey[heapSize];
+			int i = 0;
+			int son = 1;
+			while (son < heapSize) {
+				// Find the son with minimum distance among the (at most)
+				// four sons of i
+				int last = Math.min(son + 4, heapSize);
+				int minSon = son;
+				for (int j = son + 1; j < last; j++) {
+					if (heapKey[j] < heapKey[minSon]) {
+						minSon = j;
+					}
+				}
+				if (heapKey[minSon] >= d) {
+					break;
+				}
+				heap[i] = heap[minSon];
+				heapKey[i] = heapKey[minSon];
+				heapPosition[heap[i]] = i;
+				i = minSon;
+				son = 4 * i + 1;
+			}
+			heap[i] = v;
+			heapKey[i] = d;
+			heapPosition[v] = i;
+		}
+		return minimum;
+	}
+
+	/*
+	 * Return true if v has been reached by the last visit.
+	 */
+	public boolean isVisited(int v) {
+		return stamp != null && stamp[v] == epoch;
+	}
+
+	private void nextEpoch() {
+		epoch++;
+		if (epoch == 0) {
+			if (stamp != null) {
+				Arrays.fill(stamp, 0);
+			}
+			epoch = 1;
+		}
+		visited = 0;
+		heapSize = 0;
+	}
+}
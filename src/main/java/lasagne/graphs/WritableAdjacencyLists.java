@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.graphs;
+
+import java.io.IOException;
+
+/*
+ * This class defines the operations by which the readers fill the adjacency
+ * (or incidency) lists of a graph, independently of where the edges are
+ * stored. The edges can either be appended to the list of a node by means of
+ * the add method, or stored at positions computed by the reader by means of
+ * the set method. Positions are long values, since the lists of a graph can
+ * contain more edges than the elements of a Java array.
+ */
+public abstract class WritableAdjacencyLists extends AdjacencyLists {
+	/*
+	 * Create the lists of n nodes whose lengths are given by the degree array.
+	 * The edges are stored outside the Java heap (see OffHeapAdjacencyLists)
+	 * if required or if they do not fit into Java arrays.
+	 */
+	public static WritableAdjacencyLists create(int[] degree,
+			boolean isWeighted, boolean isOffHeap) {
+		long size = 0;
+		for (int u = 0; u < degree.length; u++) {
+			size = size + degree[u];
+		}
+		if (isOffHeap || size > ArrayAdjacencyLists.MAX_EDGES) {
+			return new OffHeapAdjacencyLists(degree, isWeighted);
+		}
+		return new ArrayAdjacencyLists(degree, isWeighted);
+	}
+
+	/*
+	 * Append the edge (u, h) with weight w to the list of node u.
+	 */
+	public abstract void add(int u, int h, int w) throws IOException;
+
+	/*
+	 * Terminate the construction of the lists. If some list contains less
+	 * edges than declared, the lists are compacted so that no hole is left
+	 * between them.
+	 */
+	public abstract void close();
+
+	/*
+	 * Return the position of the first edge in the list of node u.
+	 */
+	abstract long getOffset(int u);
+
+	/*
+	 * Store the edge with head h and weight w in position p. This method is
+	 * used by readers which compute by themselves the position of each edge:
+	 * they must also set, by means of setNext, the position following the last
+	 * edge of each list.
+	 */
+	abstract void set(long p, int h, int w);
+
+	abstract void setNext(int u, long p);
+}
@@ -41,13 +41,17 @@ import java.util.StringTokenizer;
 import javax.swing.filechooser.FileSystemView;
 import javax.swing.table.AbstractTableModel;
 
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.BinaryGraphFile;
+
 /*
  * This class implements the table model for showing NDE files contained in the
- * directory selected in the tree list. Only NDE files are included in the
- * table. For each file, the following information are shown: the name, the size
- * in bytes, the last modification date, the number of nodes, and whether the
- * graph is directed or weighted. These last two information are read from the
- * first line of the file.
+ * directory selected in the tree list. Only the files which can be read as
+ * graphs are included in the table. For each file, the following information
+ * are shown: the name, the size in bytes, the last modification date, the
+ * number of nodes, and whether the graph is directed or weighted. These last
+ * two information are read from the first line of NDE files and from the
+ * header of binary graph files (they are not shown for the other formats).
  */
 class FileTableModel extends AbstractTableModel {
 	private File[] files;
@@ -71,6 +75,26 @@ class FileTableModel extends AbstractTableModel {
 		boolean isWeighted = false;
 		int n = 0;
 		if (file.exists() && !file.isDirectory()
+				&& BinaryGraphFile.isBinaryFile(file.getName())) {
+			try {
+				BinaryGraphFile bgf = new BinaryGraphFile(file);
+				n = bgf.getN();
+				isOriented = bgf.isOriented();
+				isWeighted = bgf.isWeighted();
+				exception = false;
+			} catch (Exception e) {
+				if (!exception) {
+					StringWriter sw = new StringWriter();
+					PrintWriter pw = new PrintWriter(sw);
+					e.printStackTrace(pw);
+					Lasagne.logger
+							.info("======= Java Exception: if you want you can report it\n"
+									+ sw + "=======");
+					exception = true;
+				}
+				return "";
+			}
+		} else if (file.exists() && !file.isDirectory()
 				&& file.getName().endsWith(".nde")) {
 			try {
 				BufferedReader br = new BufferedReader(new FileReader(file));
@@ -155,17 +179,21 @@ class FileTableModel extends AbstractTableModel {
 		return files[row];
 	}
 
+	private boolean isGraphFile(File file) {
+		return file.isFile() && ArrayGraph.isGraphFile(file.getName());
+	}
+
 	public void setFiles(File[] files) {
 		int nf = 0;
 		for (int f = 0; f < files.length; f++) {
-			if (files[f].isFile() && files[f].getName().endsWith(".nde")) {
+			if (isGraphFile(files[f])) {
 				nf = nf + 1;
 			}
 		}
 		this.files = new File[nf];
 		int cf = 0;
 		for (int f = 0; f < files.length; f++) {
-			if (files[f].isFile() && files[f].getName().endsWith(".nde")) {
+			if (isGraphFile(files[f])) {
 				this.files[cf++] = files[f];
 			}
 		}
@@ -38,9 +38,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -51,8 +49,6 @@ import java.net.URLConnection;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Properties;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -81,15 +77,23 @@ import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreePath;
 
+import lasagne.graphs.AdjacencyLists;
 import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.BinaryGraphFile;
+import lasagne.graphs.MultiSourceBFS;
+import lasagne.graphs.NodeOrdering;
+import lasagne.graphs.VisitWorkspace;
+import lasagne.methods.AllSourcesDiameter;
+import lasagne.methods.BoundingDiameters;
+import lasagne.methods.ExactSumSweep;
 import lasagne.methods.FourSweep;
 import lasagne.methods.IFub;
+import lasagne.methods.Radius;
+import lasagne.methods.RepeatedRuns;
 import lasagne.methods.WeightedIFub;
-import lasagne.utilities.ArrayUtils;
 import lasagne.utilities.ErrorMessage;
 import lasagne.utilities.Input;
 import lasagne.utilities.DistanceDistributionPlot;
-import lasagne.utilities.PairArray;
 
 import org.apache.commons.cli.BasicParser;
 import org.apache.commons.cli.CommandLine;
@@ -115,32 +119,26 @@ public class Lasagne {
 			logger.warn("Network file: " + openedFile.getName());
 			logger.warn("Number of nodes: " + graph.getN());
 			logger.warn("Number of edges: " + graph.getM());
-			long ed = 0;
-			PairArray rst = null;
-			for (int u = 0; u < graph.getN(); u++) {
-				rst = graph.visit(u);
-				if (rst == null) {
-					break;
-				}
-				int[] dist = rst.getFirstArray();
-				int edu = 0;
-				for (int v = 0; v < graph.getN(); v++) {
-					if (dist[v] < Integer.MAX_VALUE && edu < dist[v]) {
-						edu = dist[v];
-					}
-					if (dist[v] < Integer.MAX_VALUE && ed < dist[v]) {
-						ed = dist[v];
+			// The sources are visited in parallel, and the progress bar is
+			// advanced whenever the engine reports the visited sources
+			long[] rst = new AllSourcesDiameter() {
+				private int steps = 0;
+
+				protected void progress(int visited) {
+					for (; steps < visited; steps++) {
+						step("Percentage of done BFSes/Dijkstras");
 					}
 				}
-				step("Percentage of done BFSes/Dijkstras");
-			}
-			if (rst != null) {
-				Lasagne.logger.warn("Diameter is " + ed);
-				setDiameterDetails(ed);
-			} else {
+			}.run(graph, Runtime.getRuntime().availableProcessors());
+			if (rst == null) {
 				ErrorMessage.showErrorMessage(
 						"The diameter could not be computed", "Warning");
+				return;
 			}
+			long ed = rst[0];
+			Lasagne.logger.info("Visits per second: " + rst[2]);
+			Lasagne.logger.warn("Diameter is " + ed);
+			setDiameterDetails(ed);
 		}
 	}
 
@@ -157,23 +155,41 @@ public class Lasagne {
 			logger.info("Number of nodes: " + graph.getN());
 			logger.info("Number of edges: " + graph.getM());
 			int u = (int) (Math.random() * graph.getN());
-			int[] res = graph.visit(u).getFirstArray();
-			int ub = 2 * res[ArrayUtils.getIndexOfMax(res)];
+			VisitWorkspace ws = new VisitWorkspace(graph.getN());
+			graph.visit(u, ws);
+			int ub = 2 * ws.getEccentricity();
 			logger.info("Upper bound on maximum distance: " + ub);
 			int[] dd = new int[ub];
 			for (int i = 0; i < ub; i++) {
 				dd[i] = 0;
 			}
+			int[] sampled = new int[runs];
 			for (int i = 0; i < runs; i++) {
-				u = (int) (Math.random() * graph.getN());
-				logger.info("Sampled node " + u);
-				res = graph.visit(u).getFirstArray();
-				for (int v = 0; v < graph.getN(); v++) {
-					if (res[v] > 0) {
-						dd[res[v]]++;
+				sampled[i] = (int) (Math.random() * graph.getN());
+				logger.info("Sampled node " + sampled[i]);
+			}
+			if (graph.isWeighted()) {
+				for (int i = 0; i < runs; i++) {
+					graph.visit(sampled[i], ws);
+					for (int v = 1; v < ws.getVisitedNodes(); v++) {
+						dd[ws.getDistance(ws.getVisitedNode(v))]++;
+					}
+					step("Percentage of sampled nodes");
+				}
+			} else {
+				// The sampled nodes are visited MultiSourceBFS.MAX_SOURCES at
+				// a time
+				MultiSourceBFS msbfs = new MultiSourceBFS(graph);
+				for (int i = 0; i < runs; i += MultiSourceBFS.MAX_SOURCES) {
+					int count = Math.min(MultiSourceBFS.MAX_SOURCES, runs - i);
+					msbfs.run(sampled, i, count);
+					for (int d = 1; d <= msbfs.getMaxDistance(); d++) {
+						dd[d] += msbfs.getPairs(d);
+					}
+					for (int j = 0; j < count; j++) {
+						step("Percentage of sampled nodes");
 					}
 				}
-				step("Percentage of sampled nodes");
 			}
 			logger.info("Starting normalization of distribution");
 			long total = 0;
@@ -202,8 +218,9 @@ public class Lasagne {
 
 	/*
 	 * This inner class implements the task of downloading a NDE file (possibly
-	 * ZIPPED) from the web. The extension of the file must be either '.nde' or
-	 * '.zip'. The file is saved in the current directory.
+	 * compressed) from the web. The extension of the file must be either
+	 * '.nde', '.gz', or '.zip'. The file is saved in the current directory as
+	 * it is, since compressed files are read directly by ArrayGraph.
 	 */
 	private class DownloadFileWorker extends ProgressTask {
 		URLConnection uc;
@@ -247,31 +264,6 @@ public class Lasagne {
 				out.write(data);
 				out.flush();
 				out.close();
-				if (fileName.endsWith(".zip")) {
-					final int BUFFER = 2048;
-					BufferedOutputStream dest = null;
-					FileInputStream fis = new FileInputStream(fileName);
-					ZipInputStream zis = new ZipInputStream(
-							new BufferedInputStream(fis));
-					ZipEntry entry;
-					while ((entry = zis.getNextEntry()) != null) {
-						logger.warn("Extracting: " + entry);
-						int count;
-						data = new byte[BUFFER];
-						FileOutputStream fos = new FileOutputStream(tree
-								.getSelectionPath().getLastPathComponent()
-								+ "/" + entry.getName());
-						dest = new BufferedOutputStream(fos, BUFFER);
-						while ((count = zis.read(data, 0, BUFFER)) != -1) {
-							dest.write(data, 0, count);
-						}
-						dest.flush();
-						dest.close();
-					}
-					zis.close();
-					File file = new File(fileName);
-					file.delete();
-				}
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
@@ -282,71 +274,74 @@ public class Lasagne {
 	/*
 	 * This inner class implements the task of computing a lower bound for the
 	 * diameter of the currently opened graph by executing a given number of
-	 * times (stored in the runs field) the 4-sweep method.
+	 * times (stored in the runs field) the 4-sweep method. The runs are
+	 * executed concurrently (see RepeatedRuns), and the lower bound is updated
+	 * as soon as each of them is completed.
 	 */
 	private class FourSweepWorker extends ProgressTask {
+		private long lb;
+		private int completed;
+
 		public void execute() {
 			logger.warn("Network file: " + openedFile.getName());
 			logger.warn("Number of nodes: " + graph.getN());
 			logger.warn("Number of edges: " + graph.getM());
-			long lb = 0;
-			for (int i = 0; i < runs; i++) {
-				long st = System.currentTimeMillis();
-				long[] d = FourSweep.run(graph);
-				if (d[0] > lb) {
-					lb = d[0];
-					long et = System.currentTimeMillis();
-					if (et - st < 100)
-						try {
-							Thread.sleep(500 - (et - st));
-						} catch (InterruptedException e) {
-							e.printStackTrace();
-						}
+			lb = 0;
+			completed = 0;
+			long[][] d = new RepeatedRuns() {
+				protected void completed(int run, long[] result) {
+					lb = Math.max(lb, result[0]);
+					step("Lower bound is " + lb + " at iteration "
+							+ completed);
+					Lasagne.logger.info("Lower bound is " + lb
+							+ " at iteration " + completed + " (run " + run
+							+ ")");
+					completed++;
 				}
-				step("Lower bound is " + lb + " at iteration " + i);
-				Lasagne.logger.info("Lower bound is " + lb + " at iteration "
-						+ i);
+
+				protected long[] execute(int run) {
+					return FourSweep.run(graph);
+				}
+			}.run(runs, Runtime.getRuntime().availableProcessors());
+			if (d != null) {
+				Lasagne.logger.warn("Lower bound is " + lb);
+			} else {
+				ErrorMessage.showErrorMessage(
+						"The lower bound could not be computed", "Warning");
 			}
-			Lasagne.logger.warn("Lower bound is " + lb);
 		}
 	}
 
 	/*
 	 * This inner class implements the task of computing the diameter of the
 	 * currently opened graph by executing a given number of times (stored in
-	 * the runs field) the iFUB method.
+	 * the runs field) the iFUB method. The runs are executed concurrently
+	 * (see RepeatedRuns), each by means of its own instance of the method.
 	 */
 	private class IFUBWorker extends ProgressTask {
 		public void execute() {
 			logger.warn("Network file: " + openedFile.getName());
 			logger.warn("Number of nodes: " + graph.getN());
 			logger.warn("Number of edges: " + graph.getM());
-			long[][] d = new long[runs][];
-			boolean error = false;
-			if (!graph.isWeighted()) {
-				IFub sf = new IFub();
-				for (int e = 0; e < runs; e++) {
-					d[e] = sf.run(graph, 0);
-					if (d[e] == null) {
-						error = true;
-						break;
-					} else {
-						step("Run " + e + " completed");
-					}
+			int threads = Runtime.getRuntime().availableProcessors();
+			final int t = RepeatedRuns.getThreadsPerRun(runs, threads);
+			long[][] d = new RepeatedRuns() {
+				protected void completed(int run, long[] result) {
+					step("Run " + run + " completed");
 				}
-			} else {
-				WeightedIFub wsf = new WeightedIFub();
-				for (int e = 0; e < runs; e++) {
-					d[e] = wsf.run(graph, 0);
-					if (d[e] == null) {
-						error = true;
-						break;
-					} else {
-						step("Run " + e + " completed");
+
+				protected long[] execute(int run) {
+					if (!graph.isWeighted()) {
+						IFub sf = new IFub();
+						sf.setThreads(t);
+						return sf.run(graph, 0);
 					}
+					WeightedIFub wsf = new WeightedIFub();
+					wsf.setThreads(t);
+					return wsf.run(graph, 0);
 				}
-			}
-			if (!error) {
+			}.run(runs, threads);
+			if (d != null) {
 				logger.warn("Diameter is " + d[0][0]);
 				setDiameterDetails(d[0][0]);
 				long sum = 0;
@@ -359,7 +354,7 @@ public class Lasagne {
 						/ runs);
 			} else {
 				ErrorMessage.showErrorMessage(
-						"The diameter could not be computed", "Warning");				
+						"The diameter could not be computed", "Warning");
 			}
 		}
 	}
@@ -402,7 +397,9 @@ public class Lasagne {
 	 * node index, its out-degree and its in-degree (which is mandatory if the
 	 * graph is directed), and finally the next lines contain, for each edge,
 	 * the tail node index, the head node index, and the weight of the edge
-	 * (which is mandatory if the graph is directed).
+	 * (which is mandatory if the graph is directed). The graph can also be stored
+	 * into a binary graph file (with extension '.bnde'), which is memory mapped
+	 * instead of being parsed.
 	 */
 	private class OpenFileWorker extends ProgressTask {
 		public void execute() {
@@ -423,6 +420,31 @@ public class Lasagne {
 		}
 	}
 
+	/*
+	 * This inner class implements the task of computing both the diameter and
+	 * the radius of the currently opened graph by means of the ExactSumSweep
+	 * method.
+	 */
+	private class SumSweepWorker extends ProgressTask {
+		public void execute() {
+			logger.warn("Network file: " + openedFile.getName());
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			long[] r = new ExactSumSweep().run(graph);
+			if (r != null) {
+				logger.warn("Diameter is " + r[0]);
+				logger.warn("Radius is " + r[1]);
+				logger.warn("Number of BFSes/Dijkstras: " + r[2]);
+				setDiameterDetails(r[0]);
+			} else {
+				ErrorMessage.showErrorMessage(
+						"The diameter and the radius could not be computed "
+								+ "(is the graph strongly connected?)",
+						"Warning");
+			}
+		}
+	}
+
 	static final String APP_TITLE = "LASAGNE";
 	public static Logger logger = Logger.getLogger(Lasagne.class.getName());
 	static Properties logProperties = new Properties();
@@ -523,6 +545,137 @@ public class Lasagne {
 		}
 	}
 
+	/*
+	 * This method executes the task of comparing the throughput of the visits
+	 * of a graph before and after its lists have been compressed (see
+	 * ArrayGraph.compress), when LASAGNE has been executed via the terminal.
+	 * The same k randomly chosen nodes are used as sources in both cases.
+	 */
+	private void benchmarkOnTerminal(CommandLine cl) {
+		String fn = cl.getOptionValues("benchmark")[0];
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		int k = Integer.parseInt(cl.getOptionValues("benchmark")[1]);
+		if (k <= 0) {
+			logger.warn("The number of visits must be positive");
+			System.exit(-1);
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			logger.warn("Network file: " + fn);
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			int[] sources = new int[k];
+			for (int i = 0; i < k; i++) {
+				sources[i] = (int) (Math.random() * graph.getN());
+			}
+			logger.warn("Uncompressed lists: " + benchmarkVisits(sources)
+					+ " edges per second");
+			graph.compress();
+			logger.warn("Compressed lists: " + benchmarkVisits(sources)
+					+ " edges per second");
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
+
+	/*
+	 * Execute a visit from each of the given sources (after a first visit
+	 * which is not measured) and return the number of edges scanned per
+	 * second.
+	 */
+	private long benchmarkVisits(int[] sources) {
+		VisitWorkspace ws = new VisitWorkspace(graph.getN());
+		graph.visit(sources[0], ws);
+		AdjacencyLists lists = graph.getAdjacencyLists();
+		long edges = 0;
+		long time = 0;
+		for (int i = 0; i < sources.length; i++) {
+			long startTime = System.nanoTime();
+			graph.visit(sources[i], ws);
+			time = time + System.nanoTime() - startTime;
+			for (int j = 0; j < ws.getVisitedNodes(); j++) {
+				edges = edges + lists.getDegree(ws.getVisitedNode(j));
+			}
+		}
+		logger.info("Average visit time: " + time / sources.length / 1000000
+				+ " milliseconds");
+		return (long) (edges / (time / 1e9));
+	}
+
+	/*
+	 * This method executes the task of converting a NDE file into a binary
+	 * graph file (with the same name and extension '.bnde'), when LASAGNE has
+	 * been executed via the terminal. If the nodes have been reordered, the
+	 * binary file contains the reordered graph together with the original
+	 * identifiers of its nodes.
+	 */
+	private void convertOnTerminal(CommandLine cl) {
+		String fn = cl.getOptionValue("convert");
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			String bfn = BinaryGraphFile.getBinaryFileName(fn);
+			if (graph.writeBinaryFile(bfn)) {
+				logger.warn("Binary file: " + bfn);
+			} else {
+				logger.warn("The binary file could not be written");
+			}
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
+
+	/*
+	 * This method executes the task of computing the exact diameter of a graph
+	 * by visiting it from each node, when LASAGNE has been executed via the
+	 * terminal. The visits are executed by as many threads as specified by the
+	 * threads option (by default, the number of available processors).
+	 */
+	private void diameterOnTerminal(CommandLine cl) {
+		String fn = cl.getOptionValue("diameter");
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			logger.warn("Network file: " + fn);
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (cl.hasOption("threads")) {
+				threads = graph.getThreads();
+			}
+			long[] rst = new AllSourcesDiameter().run(graph, threads);
+			if (rst == null) {
+				logger.warn("The diameter could not be computed");
+				System.exit(-1);
+			}
+			logger.warn("Diameter is " + rst[0]);
+			logger.warn("Visits per second: " + rst[2]);
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
+
 	/*
 	 * This method the task of computing the distance distribution of a graph by
 	 * executing a limited number of BFSes, when LASAGNE has been executed via
@@ -541,27 +694,41 @@ public class Lasagne {
 		}
 		try {
 			logger.info("File: " + fn);
-			graph = new ArrayGraph();
-			graph.readFile(fn);
+			readGraphOnTerminal(fn, cl);
 			logger.warn("Network file: " + fn);
 			logger.info("Number of nodes: " + graph.getN());
 			logger.info("Number of edges: " + graph.getM());
 			int u = (int) (Math.random() * graph.getN());
-			int[] res = graph.visit(u).getFirstArray();
-			int ub = 2 * res[ArrayUtils.getIndexOfMax(res)];
+			VisitWorkspace ws = new VisitWorkspace(graph.getN());
+			graph.visit(u, ws);
+			int ub = 2 * ws.getEccentricity();
 			logger.info("Upper bound on maximum distance: " + ub);
 			int[] dd = new int[ub];
 			for (int i = 0; i < ub; i++) {
 				dd[i] = 0;
 			}
 			int runs = k * ((int) Math.log(graph.getN()));
+			int[] sampled = new int[runs];
 			for (int i = 0; i < runs; i++) {
-				u = (int) (Math.random() * graph.getN());
-				logger.info("Sampled node " + u);
-				res = graph.visit(u).getFirstArray();
-				for (int v = 0; v < graph.getN(); v++) {
-					if (res[v] > 0) {
-						dd[res[v]]++;
+				sampled[i] = (int) (Math.random() * graph.getN());
+				logger.info("Sampled node " + sampled[i]);
+			}
+			if (graph.isWeighted()) {
+				for (int i = 0; i < runs; i++) {
+					graph.visit(sampled[i], ws);
+					for (int v = 1; v < ws.getVisitedNodes(); v++) {
+						dd[ws.getDistance(ws.getVisitedNode(v))]++;
+					}
+				}
+			} else {
+				// The sampled nodes are visited MultiSourceBFS.MAX_SOURCES at
+				// a time
+				MultiSourceBFS msbfs = new MultiSourceBFS(graph);
+				for (int i = 0; i < runs; i += MultiSourceBFS.MAX_SOURCES) {
+					msbfs.run(sampled, i, Math.min(MultiSourceBFS.MAX_SOURCES,
+							runs - i));
+					for (int d = 1; d <= msbfs.getMaxDistance(); d++) {
+						dd[d] += msbfs.getPairs(d);
 					}
 				}
 			}
@@ -590,12 +757,106 @@ public class Lasagne {
 		}
 	}
 
+	/*
+	 * This method implements the task of computing the eccentricity of every
+	 * node of a graph by means of the BoundingDiameters method, when LASAGNE
+	 * has been executed via the terminal. The eccentricity distribution is
+	 * then reported.
+	 */
+	private void eccentricitiesOnTerminal(CommandLine cl) {
+		String fn = cl.getOptionValue("ecc");
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			logger.warn("Network file: " + fn);
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			BoundingDiameters bd = new BoundingDiameters();
+			if (bd.run(graph) == null) {
+				logger.warn("The eccentricities could not be computed");
+				System.exit(-1);
+			}
+			long[] distribution = bd.getEccentricityDistribution();
+			for (int e = 0; e < distribution.length; e++) {
+				if (distribution[e] > 0) {
+					logger.warn("Eccentricity " + e + ": " + distribution[e]
+							+ " nodes");
+				}
+			}
+			logger.warn("Number of BFSes/Dijkstras: " + bd.getVisits());
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
+
+	/*
+	 * This method implements the task of computing the radius and the center
+	 * of a graph, when LASAGNE has been executed via the terminal. In the
+	 * case of directed graphs, the eccentricities can be forward (default),
+	 * backward, or both.
+	 */
+	private void radiusOnTerminal(CommandLine cl) {
+		String[] values = cl.getOptionValues("radius");
+		String fn = values[0];
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		Radius radius = new Radius();
+		if (values.length > 1) {
+			if (values[1].equals("forward")) {
+				radius.setDirection(Radius.FORWARD);
+			} else if (values[1].equals("backward")) {
+				radius.setDirection(Radius.BACKWARD);
+			} else if (values[1].equals("both")) {
+				radius.setDirection(Radius.BOTH);
+			} else {
+				logger.warn("The direction must be forward, backward, "
+						+ "or both");
+				System.exit(-1);
+			}
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			logger.warn("Network file: " + fn);
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			long[] rst = radius.run(graph);
+			if (rst == null) {
+				logger.warn("The radius could not be computed");
+				System.exit(-1);
+			}
+			logger.warn("Radius is " + rst[0]);
+			int[] center = radius.getCenter();
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < center.length; i++) {
+				sb.append(i > 0 ? " " : "").append(graph.getLabel(center[i]));
+			}
+			logger.warn("Center (" + rst[1] + " nodes): " + sb);
+			logger.warn("Number of BFSes/Dijkstras: " + rst[2]);
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
+
 	/*
 	 * Create the graphical user interface of LASAGNE. The GUI contains a file
 	 * tree navigator on the left, a file table on the top right, a tool-bar on
 	 * the middle right, and a console on the bottom right. The tree navigator
 	 * starts from the directory specified as the first program argument, while
-	 * the file table shows only files with extension '.nde'.
+	 * the file table shows only the files which can be read as graphs (see
+	 * ArrayGraph.isGraphFile).
 	 */
 	public Container getGui() {
 		if (gui == null) {
@@ -805,10 +1066,11 @@ public class Lasagne {
 								(JFrame) gui.getTopLevelAncestor(),
 								"Specify the URL of the file");
 						if (url != null) {
-							if (!url.endsWith(".nde") && !url.endsWith(".zip")) {
+							if (!url.endsWith(".nde") && !url.endsWith(".gz")
+									&& !url.endsWith(".zip")) {
 								ErrorMessage
 										.showErrorMessage(
-												"The file must be a NDE file (possibly zipped) ",
+												"The file must be a NDE file (possibly compressed) ",
 												"Warning");
 							} else {
 								try {
@@ -880,8 +1142,11 @@ public class Lasagne {
 										"A new file containing the MCC will be created. Continue?",
 										"Confirmation Question",
 										JOptionPane.YES_NO_OPTION);
-						if (n == 0 && f.endsWith(".nde")) {
-							String nf = f.substring(0, f.lastIndexOf(".nde"));
+						if (n == 0 && ArrayGraph.isGraphFile(f)) {
+							if (f.endsWith(".gz")) {
+								f = f.substring(0, f.length() - 3);
+							}
+							String nf = f.substring(0, f.lastIndexOf('.'));
 							nf = nf + "-mcc.nde";
 							MaximumConnectedComponentWorker mccw = new MaximumConnectedComponentWorker(
 									nf);
@@ -1083,6 +1348,33 @@ public class Lasagne {
 				}
 			});
 			toolBar.add(iFUB);
+			/*
+			 * This button allows the user to compute both the diameter and the
+			 * radius of the currently opened graph, which has to be (strongly)
+			 * connected. If no graph is currently opened, then a warning
+			 * message is shown. Both values are computed at once by executing
+			 * the ExactSumSweep method.
+			 */
+			JButton sumSweep = new JButton(new ImageIcon(
+					cl.getResource("img/sumsweep.png")));
+			sumSweep.setToolTipText("Compute the diameter and the radius of the opened network via ExactSumSweep");
+			sumSweep.setMnemonic('e');
+			sumSweep.addActionListener(new ActionListener() {
+				public void actionPerformed(ActionEvent ae) {
+					if (graph != null && graph.getN() > 0) {
+						SumSweepWorker ssw = new SumSweepWorker();
+						new JProgressDialog(lasagneFrame,
+								"Running ExactSumSweep", "Wait...", true, ssw);
+					} else {
+						ErrorMessage
+								.showErrorMessage(
+										"One non-empty network file has to be opened first",
+										"Warning");
+					}
+					gui.repaint();
+				}
+			});
+			toolBar.add(sumSweep);
 			/*
 			 * This button allows the user to compute the distance distribution
 			 * of the currently opened graph, which has to be undirected and
@@ -1217,7 +1509,9 @@ public class Lasagne {
 	/*
 	 * This method the task of computing the diameter of a graph by executing a
 	 * BFS or a Dijkstra visit from each node when LASAGNE has been executed via
-	 * the terminal.
+	 * the terminal. The runs are executed concurrently by as many threads as
+	 * specified by the threads option (by default, the number of available
+	 * processors).
 	 */
 	private void iFUBOnTerminal(CommandLine cl) {
 		String fn = cl.getOptionValues("ifub")[0];
@@ -1232,24 +1526,36 @@ public class Lasagne {
 		}
 		try {
 			logger.info("File: " + fn);
-			graph = new ArrayGraph();
-			graph.readFile(fn);
+			readGraphOnTerminal(fn, cl);
 			logger.warn("Network file: " + fn);
 			logger.warn("Number of nodes: " + graph.getN());
 			logger.warn("Number of edges: " + graph.getM());
-			long[][] d = new long[runs][];
-			if (!graph.isWeighted()) {
-				IFub sf = new IFub();
-				for (int e = 0; e < runs; e++) {
-					d[e] = sf.run(graph, 0);
-					logger.warn("Executed run " + e);
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (cl.hasOption("threads")) {
+				threads = graph.getThreads();
+			}
+			final int t = RepeatedRuns.getThreadsPerRun(runs, threads);
+			final boolean isKernelized = cl.hasOption("kernel");
+			long[][] d = new RepeatedRuns() {
+				protected void completed(int run, long[] result) {
+					logger.warn("Executed run " + run);
 				}
-			} else {
-				WeightedIFub wsf = new WeightedIFub();
-				for (int e = 0; e < runs; e++) {
-					d[e] = wsf.run(graph, 0);
-					logger.warn("Executed run " + e);
+
+				protected long[] execute(int run) {
+					if (!graph.isWeighted()) {
+						IFub sf = new IFub();
+						sf.setKernelized(isKernelized);
+						sf.setThreads(t);
+						return sf.run(graph, 0);
+					}
+					WeightedIFub wsf = new WeightedIFub();
+					wsf.setThreads(t);
+					return wsf.run(graph, 0);
 				}
+			}.run(runs, threads);
+			if (d == null) {
+				logger.warn("The diameter could not be computed");
+				System.exit(-1);
 			}
 			logger.warn("Diameter is " + d[0][0]);
 			long sum = 0;
@@ -1306,6 +1612,42 @@ public class Lasagne {
 		PropertyConfigurator.configure(logProperties);
 	}
 
+	/*
+	 * Read a graph when LASAGNE has been executed via the terminal, by taking
+	 * into account the options which specify how the graph has to be stored
+	 * (offheap, order, and compressed).
+	 */
+	private boolean readGraphOnTerminal(String fn, CommandLine cl) {
+		graph = new ArrayGraph();
+		graph.setOffHeap(cl.hasOption("offheap"));
+		if (!graph.readFile(fn)) {
+			return false;
+		}
+		if (cl.hasOption("order")) {
+			try {
+				graph.reorder(NodeOrdering.getOrder(graph,
+						cl.getOptionValue("order")));
+			} catch (IllegalArgumentException iae) {
+				logger.warn(iae.getMessage());
+				System.exit(-1);
+			}
+		}
+		if (cl.hasOption("compressed")) {
+			graph.compress();
+		}
+		if (cl.hasOption("threads")) {
+			try {
+				graph.setThreads(Integer.parseInt(cl
+						.getOptionValue("threads")));
+			} catch (IllegalArgumentException iae) {
+				logger.warn("The number of threads must be a positive "
+						+ "integer");
+				System.exit(-1);
+			}
+		}
+		return true;
+	}
+
 	/*
 	 * Start method invoked by the main if LASAGNE is executed via the GUI.
 	 */
@@ -1330,6 +1672,23 @@ public class Lasagne {
 		Options opts = new Options();
 		opts.addOption("h", false, "Print the help message");
 		opts.addOption("v", false, "Activate the full logging of the execution");
+		opts.addOption("offheap", false,
+				"Store the edges of the graph outside the Java heap");
+		opts.addOption("compressed", false,
+				"Compress the lists of the graph before the analysis");
+		opts.addOption("kernel", false,
+				"Remove the hanging trees before executing iFUB");
+		Option order = OptionBuilder.withArgName("<order>").hasArg()
+				.withDescription(
+						"Reorder the nodes of the graph (bfs, degree, or rcm)")
+				.create("order");
+		opts.addOption(order);
+		Option threads = OptionBuilder.withArgName("<t>").hasArg()
+				.withDescription(
+						"Execute each visit (or, with diameter and ifub, many "
+								+ "visits at once) by means of t threads")
+				.create("threads");
+		opts.addOption(threads);
 		Option ifub = OptionBuilder.withArgName("<file> <e>").hasArgs(2)
 				.withValueSeparator()
 				.withDescription("Execute iFUB on file k times").create("ifub");
@@ -1339,6 +1698,34 @@ public class Lasagne {
 				.withDescription("Execute the EW method on file klog(n) times")
 				.create("dd");
 		opts.addOption(dd);
+		Option diam = OptionBuilder.withArgName("<file>").hasArg()
+				.withDescription("Compute the diameter of file by a visit "
+						+ "from each node").create("diameter");
+		opts.addOption(diam);
+		Option sumsweep = OptionBuilder.withArgName("<file>").hasArg()
+				.withDescription("Compute the diameter and the radius of "
+						+ "file by ExactSumSweep").create("sumsweep");
+		opts.addOption(sumsweep);
+		Option ecc = OptionBuilder.withArgName("<file>").hasArg()
+				.withDescription("Compute the eccentricity distribution of "
+						+ "file by BoundingDiameters").create("ecc");
+		opts.addOption(ecc);
+		Option radius = OptionBuilder.withArgName("<file> [<direction>]")
+				.hasArgs(2).withValueSeparator()
+				.withDescription("Compute the radius and the center of file "
+						+ "(direction is forward, backward, or both)")
+				.create("radius");
+		opts.addOption(radius);
+		Option convert = OptionBuilder.withArgName("<file>").hasArg()
+				.withDescription("Convert NDE file into a binary graph file")
+				.create("convert");
+		opts.addOption(convert);
+		Option benchmark = OptionBuilder.withArgName("<file> <k>").hasArgs(2)
+				.withValueSeparator()
+				.withDescription(
+						"Compare k visits of file before and after compression")
+				.create("benchmark");
+		opts.addOption(benchmark);
 		BasicParser bp = new BasicParser();
 		try {
 			CommandLine cl = bp.parse(opts, args);
@@ -1355,6 +1742,36 @@ public class Lasagne {
 					activateFullTerminalConsoleLoggerConfiguration();
 				}
 				distDistOnTerminal(cl);
+			} else if (cl.hasOption("diameter")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				diameterOnTerminal(cl);
+			} else if (cl.hasOption("sumsweep")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				sumSweepOnTerminal(cl);
+			} else if (cl.hasOption("ecc")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				eccentricitiesOnTerminal(cl);
+			} else if (cl.hasOption("radius")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				radiusOnTerminal(cl);
+			} else if (cl.hasOption("convert")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				convertOnTerminal(cl);
+			} else if (cl.hasOption("benchmark")) {
+				if (cl.hasOption("v")) {
+					activateFullTerminalConsoleLoggerConfiguration();
+				}
+				benchmarkOnTerminal(cl);
 			}
 		} catch (UnrecognizedOptionException uoe) {
 			HelpFormatter f = new HelpFormatter();
@@ -1500,4 +1917,38 @@ public class Lasagne {
 	public void showRootFile() {
 		tree.setSelectionInterval(0, 0);
 	}
+
+	/*
+	 * This method implements the task of computing the diameter and the radius
+	 * of a graph by means of the ExactSumSweep method, when LASAGNE has been
+	 * executed via the terminal.
+	 */
+	private void sumSweepOnTerminal(CommandLine cl) {
+		String fn = cl.getOptionValue("sumsweep");
+		if (!(new File(fn)).exists()) {
+			logger.warn("File does not exist");
+			System.exit(-1);
+		}
+		try {
+			logger.info("File: " + fn);
+			if (!readGraphOnTerminal(fn, cl)) {
+				logger.warn("The file could not be read");
+				System.exit(-1);
+			}
+			logger.warn("Network file: " + fn);
+			logger.warn("Number of nodes: " + graph.getN());
+			logger.warn("Number of edges: " + graph.getM());
+			long[] rst = new ExactSumSweep().run(graph);
+			if (rst == null) {
+				logger.warn("The diameter and the radius could not be computed");
+				System.exit(-1);
+			}
+			logger.warn("Diameter is " + rst[0]);
+			logger.warn("Radius is " + rst[1]);
+			logger.warn("Number of BFSes/Dijkstras: " + rst[2]);
+			logger.warn("Time (ms): " + rst[3]);
+		} catch (OutOfMemoryError ome) {
+			System.out.println("Out of memory: try with greater heap space");
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.MultiSourceBFS;
+import lasagne.graphs.VisitWorkspace;
+import lasagne.gui.Lasagne;
+
+/*
+ * This class computes the exact diameter of a graph by visiting it from every
+ * node. The sources are distributed over a work-stealing pool: each task
+ * either splits its range of sources in two halves or visits them by means of
+ * the workspace of the thread executing it (a multi-source BFS for unweighted
+ * graphs, and a Dijkstra for weighted graphs), and the maximum eccentricity
+ * found so far is shared by all the threads. Meanwhile, the invoking thread
+ * periodically reports the number of visited sources and the throughput.
+ */
+public class AllSourcesDiameter {
+	/*
+	 * The task visiting the sources from from (included) to to (excluded).
+	 */
+	private class SourcesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private int from;
+		private int to;
+
+		SourcesTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= MultiSourceBFS.MAX_SOURCES) {
+				visitSources(from, to);
+			} else {
+				// The range is split at a multiple of the width of a batch, so
+				// that every multi-source BFS but the last one is full
+				int batches = (to - from) / (2 * MultiSourceBFS.MAX_SOURCES);
+				int middle = from + Math.max(1, batches)
+						* MultiSourceBFS.MAX_SOURCES;
+				invokeAll(new SourcesTask(from, middle), new SourcesTask(
+						middle, to));
+			}
+		}
+	}
+
+	// The interval (in milliseconds) between two progress reports
+	private static final long REPORT_INTERVAL = 1000;
+
+	private ArrayGraph graph;
+	private AtomicInteger diameter = new AtomicInteger();
+	private AtomicInteger visited = new AtomicInteger();
+	// The workspaces of the threads of the pool
+	private ThreadLocal<MultiSourceBFS> bfses;
+	private ThreadLocal<VisitWorkspace> workspaces;
+
+	/*
+	 * Invoked by the thread executing run, after each report and at the end
+	 * of the computation, with the number of sources visited so far. This
+	 * method does nothing, and it can be overridden in order to show the
+	 * progress of the computation.
+	 */
+	protected void progress(int visited) {
+	}
+
+	/*
+	 * Compute the diameter of the graph by means of the given number of
+	 * threads. The method returns the diameter, the number of visited
+	 * sources, and the number of visits per second (or null if the
+	 * computation fails).
+	 */
+	public long[] run(final ArrayGraph graph, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"The number of threads must be positive");
+		}
+		this.graph = graph;
+		diameter.set(0);
+		visited.set(0);
+		bfses = new ThreadLocal<MultiSourceBFS>() {
+			protected MultiSourceBFS initialValue() {
+				return new MultiSourceBFS(graph);
+			}
+		};
+		workspaces = new ThreadLocal<VisitWorkspace>() {
+			protected VisitWorkspace initialValue() {
+				return new VisitWorkspace(graph.getN());
+			}
+		};
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			long start = System.currentTimeMillis();
+			ForkJoinTask<Void> task = pool.submit(new SourcesTask(0, graph
+					.getN()));
+			while (true) {
+				try {
+					task.get(REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+					break;
+				} catch (TimeoutException te) {
+					int v = visited.get();
+					Lasagne.logger.info("Visited sources: " + v + " out of "
+							+ graph.getN() + " (" + getRate(v, start)
+							+ " visits per second)");
+					progress(v);
+				}
+			}
+			progress(visited.get());
+			return new long[] { diameter.get(), visited.get(),
+					getRate(visited.get(), start) };
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/*
+	 * Return the number of visits per second, given the number of visits
+	 * executed since start.
+	 */
+	private long getRate(int visits, long start) {
+		long time = Math.max(1, System.currentTimeMillis() - start);
+		return visits * 1000L / time;
+	}
+
+	/*
+	 * Set the diameter to e, if e is greater than the current value.
+	 */
+	private void updateDiameter(int e) {
+		int d = diameter.get();
+		while (d < e && !diameter.compareAndSet(d, e)) {
+			d = diameter.get();
+		}
+	}
+
+	/*
+	 * Visit the sources from from (included) to to (excluded), whose number is
+	 * at most MultiSourceBFS.MAX_SOURCES.
+	 */
+	private void visitSources(int from, int to) {
+		if (graph.isWeighted()) {
+			VisitWorkspace ws = workspaces.get();
+			for (int u = from; u < to; u++) {
+				// Each Dijkstra is sequential, since the pool already keeps
+				// all the threads busy
+				graph.visit(u, ws, 1);
+				updateDiameter(ws.getEccentricity());
+				visited.incrementAndGet();
+			}
+		} else {
+			int[] sources = new int[to - from];
+			for (int i = 0; i < sources.length; i++) {
+				sources[i] = from + i;
+			}
+			MultiSourceBFS msbfs = bfses.get();
+			msbfs.run(sources, 0, sources.length);
+			updateDiameter(msbfs.getMaxDistance());
+			visited.addAndGet(sources.length);
+		}
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import lasagne.graphs.AdjacencyLists;
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
+import lasagne.gui.Lasagne;
+
+/*
+ * This class implements the BoundingDiameters method, which computes the
+ * (forward) eccentricity of every node of a strongly connected directed (or
+ * connected undirected) graph, as described in Takes, Kosters, 'Computing the
+ * eccentricity distribution of large graphs' (Algorithms 2013). For each node
+ * v, the method keeps a lower and an upper bound on its eccentricity e(v),
+ * which are tightened after each visit from a source s by means of the
+ * triangle inequality: max(d(v, s), e(s) - d(s, v)) <= e(v) <= d(v, s) + e(s).
+ * A node whose bounds coincide is resolved and is never chosen as a source.
+ * The sources are alternately chosen among the unresolved nodes as the one
+ * with the smallest lower bound and the one with the greatest upper bound,
+ * breaking ties by the greatest degree, since these nodes are the most
+ * likely to resolve many other nodes. In the directed case, the distances
+ * d(v, s) are computed by a backward visit from each source. In the case of
+ * undirected un-weighted graphs with more than two nodes, all the nodes of
+ * degree one adjacent to the same node have the same eccentricity: only one
+ * of them is kept among the candidates, and its eccentricity is finally
+ * copied to the others.
+ */
+public class BoundingDiameters {
+	private ArrayGraph graph;
+	private int n;
+	// The workspaces of the forward and of the backward visits (the same
+	// workspace if the graph is undirected)
+	private VisitWorkspace wsF;
+	private VisitWorkspace wsB;
+	private int[] lower;
+	private int[] upper;
+	// The unresolved nodes are stored in the first candidates positions
+	private int[] candidate;
+	private int candidates;
+	// The kept node of degree one adjacent to the same node as v (-1 if v has
+	// not been pruned)
+	private int[] twin;
+	private long[] distribution;
+	private int visits;
+
+	/*
+	 * Return the unresolved node with the greatest upper bound (if high is
+	 * true) or with the smallest lower bound, breaking ties by the greatest
+	 * degree.
+	 */
+	private int choose(boolean high, AdjacencyLists lists) {
+		int best = candidate[0];
+		for (int i = 1; i < candidates; i++) {
+			int v = candidate[i];
+			int c = high ? upper[v] - upper[best] : lower[best] - lower[v];
+			if (c > 0
+					|| (c == 0 && lists.getDegree(v) > lists.getDegree(best))) {
+				best = v;
+			}
+		}
+		return best;
+	}
+
+	/*
+	 * Remove from the candidates all the nodes of degree one but one for each
+	 * node they are adjacent to.
+	 */
+	private void prune(AdjacencyLists lists) {
+		int[] kept = new int[n];
+		for (int v = 0; v < n; v++) {
+			kept[v] = -1;
+		}
+		AdjacencyLists.Cursor cursor = lists.newCursor();
+		int c = 0;
+		for (int i = 0; i < candidates; i++) {
+			int v = candidate[i];
+			if (lists.getDegree(v) == 1) {
+				cursor.moveTo(v);
+				int u = cursor.nextHead();
+				if (kept[u] >= 0) {
+					twin[v] = kept[u];
+					continue;
+				}
+				kept[u] = v;
+			}
+			candidate[c++] = v;
+		}
+		candidates = c;
+	}
+
+	/*
+	 * Return the eccentricity distribution computed by the last execution:
+	 * the i-th entry is the number of nodes whose eccentricity is i.
+	 */
+	public long[] getEccentricityDistribution() {
+		return distribution;
+	}
+
+	/*
+	 * Return the number of BFSes/Dijkstras executed by the last execution.
+	 */
+	public int getVisits() {
+		return visits;
+	}
+
+	/*
+	 * Execute the visits until all the nodes are resolved. The method returns
+	 * the array of the eccentricities, or null if the graph is not (strongly)
+	 * connected.
+	 */
+	public int[] run(ArrayGraph graph) {
+		try {
+			this.graph = graph;
+			n = graph.getN();
+			wsF = new VisitWorkspace(n);
+			wsB = graph.isOriented() ? new VisitWorkspace(n) : wsF;
+			lower = new int[n];
+			upper = new int[n];
+			candidate = new int[n];
+			twin = new int[n];
+			for (int v = 0; v < n; v++) {
+				upper[v] = Integer.MAX_VALUE;
+				candidate[v] = v;
+				twin[v] = -1;
+			}
+			candidates = n;
+			distribution = null;
+			visits = 0;
+			AdjacencyLists lists = graph.getAdjacencyLists();
+			if (!graph.isOriented() && !graph.isWeighted() && n > 2) {
+				prune(lists);
+			}
+			boolean high = false;
+			while (candidates > 0) {
+				int s = choose(high, lists);
+				high = !high;
+				if (!visit(s)) {
+					Lasagne.logger.warn("The graph is not strongly connected");
+					return null;
+				}
+				Lasagne.logger.info("Visit " + visits + " from " + s + ": "
+						+ candidates + " unresolved nodes");
+			}
+			int max = 0;
+			for (int v = 0; v < n; v++) {
+				if (twin[v] >= 0) {
+					lower[v] = lower[twin[v]];
+				}
+				max = Math.max(max, lower[v]);
+			}
+			distribution = new long[max + 1];
+			for (int v = 0; v < n; v++) {
+				distribution[lower[v]]++;
+			}
+			return lower;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		}
+	}
+
+	/*
+	 * Execute a forward visit from s (and a backward one if the graph is
+	 * directed), update the bounds, and remove the resolved nodes from the
+	 * candidates. The method returns false if the graph is not strongly
+	 * connected.
+	 */
+	private boolean visit(int s) {
+		graph.visit(s, wsF);
+		visits++;
+		if (wsF.getVisitedNodes() < n) {
+			return false;
+		}
+		if (wsB != wsF) {
+			graph.backwardVisit(s, wsB);
+			visits++;
+			if (wsB.getVisitedNodes() < n) {
+				return false;
+			}
+		}
+		int e = wsF.getEccentricity();
+		lower[s] = e;
+		upper[s] = e;
+		int c = 0;
+		for (int i = 0; i < candidates; i++) {
+			int v = candidate[i];
+			int to = wsB.getDistance(v);
+			lower[v] = Math.max(lower[v],
+					Math.max(to, e - wsF.getDistance(v)));
+			upper[v] = Math.min(upper[v], to + e);
+			if (lower[v] < upper[v]) {
+				candidate[c++] = v;
+			}
+		}
+		candidates = c;
+		return true;
+	}
+}
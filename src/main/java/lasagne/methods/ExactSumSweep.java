@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import lasagne.graphs.AdjacencyLists;
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
+import lasagne.gui.Lasagne;
+
+/*
+ * This class implements the ExactSumSweep method, which computes both the
+ * diameter and the radius of a strongly connected directed (or connected
+ * undirected) graph, as described in Borassi, Crescenzi, Habib, Kosters,
+ * Marino, Takes, 'Fast diameter and radius BFS-based computation in (weakly
+ * connected) real-world graphs' (TCS 2015). For each node v, the method keeps
+ * a lower and an upper bound on its forward eccentricity eF(v) and on its
+ * backward eccentricity eB(v), which are tightened after each visit by means
+ * of the triangle inequality: a forward visit from s computes eF(s) exactly
+ * and, for each node v, implies d(s, v) <= eB(v) <= d(s, v) + eB(s) and
+ * eF(s) - d(s, v) <= eF(v) (and symmetrically for a backward visit). The
+ * first visits are executed by the SumSweep heuristic, starting from the
+ * node with maximum degree and choosing each next source as the node with
+ * maximum sum of the distances from (or to) the previous ones. Afterwards,
+ * each source is chosen adaptively among the node with the greatest upper
+ * bound on its forward (backward) eccentricity, which may decrease the upper
+ * bound on the diameter, and the node with the smallest lower bound on its
+ * forward eccentricity, which may increase the lower bound on the radius. In
+ * the directed case, both a forward and a backward visit are executed from
+ * each of these sources, since the upper bounds implied by a visit depend on
+ * the eccentricity of the source in the other direction. The method stops as
+ * soon as the bounds on the diameter and on the radius (the minimum forward
+ * eccentricity) coincide. In the case of undirected graphs the forward and
+ * the backward bounds are the same.
+ */
+public class ExactSumSweep {
+	// The number of visits executed by the SumSweep heuristic
+	private static final int SWEEPS = 4;
+	// The kinds of visit chosen after the SumSweep heuristic
+	private static final int DIAMETER_FORWARD = 0;
+	private static final int DIAMETER_BACKWARD = 1;
+	private static final int RADIUS = 2;
+
+	private ArrayGraph graph;
+	private int n;
+	// The workspaces of the forward and of the backward visits
+	private VisitWorkspace wsF;
+	private VisitWorkspace wsB;
+	// The bounds on the forward and backward eccentricities, and the sums of
+	// the distances to the sources of the backward visits and from the
+	// sources of the forward visits (the backward arrays are the forward ones
+	// if the graph is undirected)
+	private int[] lowerF;
+	private int[] upperF;
+	private int[] lowerB;
+	private int[] upperB;
+	private long[] sumF;
+	private long[] sumB;
+	private int visits;
+
+	/*
+	 * Execute a backward visit from s, and update the bounds. The method
+	 * returns false if s is not reached by all the nodes.
+	 */
+	private boolean backward(int s) {
+		graph.backwardVisit(s, wsB);
+		visits++;
+		if (wsB.getVisitedNodes() < n) {
+			return false;
+		}
+		int e = wsB.getEccentricity();
+		lowerB[s] = e;
+		upperB[s] = e;
+		for (int i = 0; i < n; i++) {
+			int v = wsB.getVisitedNode(i);
+			int d = wsB.getDistance(v);
+			lowerF[v] = Math.max(lowerF[v], d);
+			if (upperF[s] != Integer.MAX_VALUE) {
+				upperF[v] = Math.min(upperF[v], d + upperF[s]);
+			}
+			lowerB[v] = Math.max(lowerB[v], e - d);
+			sumF[v] += d;
+		}
+		return true;
+	}
+
+	/*
+	 * Execute a forward visit from s, and update the bounds. The method
+	 * returns false if s does not reach all the nodes.
+	 */
+	private boolean forward(int s) {
+		graph.visit(s, wsF);
+		visits++;
+		if (wsF.getVisitedNodes() < n) {
+			return false;
+		}
+		int e = wsF.getEccentricity();
+		lowerF[s] = e;
+		upperF[s] = e;
+		for (int i = 0; i < n; i++) {
+			int v = wsF.getVisitedNode(i);
+			int d = wsF.getDistance(v);
+			lowerB[v] = Math.max(lowerB[v], d);
+			if (upperB[s] != Integer.MAX_VALUE) {
+				upperB[v] = Math.min(upperB[v], d + upperB[s]);
+			}
+			lowerF[v] = Math.max(lowerF[v], e - d);
+			sumB[v] += d;
+		}
+		return true;
+	}
+
+	/*
+	 * Return the lower and the upper bound on the diameter and on the radius.
+	 */
+	private long[] getBounds() {
+		long[] bounds = new long[] { 0, Integer.MAX_VALUE, Integer.MAX_VALUE,
+				Integer.MAX_VALUE };
+		long maxUpperF = 0;
+		long maxUpperB = 0;
+		for (int v = 0; v < n; v++) {
+			bounds[0] = Math.max(bounds[0], Math.max(lowerF[v], lowerB[v]));
+			maxUpperF = Math.max(maxUpperF, upperF[v]);
+			maxUpperB = Math.max(maxUpperB, upperB[v]);
+			bounds[2] = Math.min(bounds[2], lowerF[v]);
+			bounds[3] = Math.min(bounds[3], upperF[v]);
+		}
+		bounds[1] = Math.min(maxUpperF, maxUpperB);
+		return bounds;
+	}
+
+	/*
+	 * Return the node whose eccentricity is not known yet with the greatest
+	 * sum of distances (or -1 if all the eccentricities are known).
+	 */
+	private int getMaxSum(int[] lower, int[] upper, long[] sum) {
+		int max = -1;
+		for (int v = 0; v < n; v++) {
+			if (lower[v] < upper[v] && (max < 0 || sum[v] > sum[max])) {
+				max = v;
+			}
+		}
+		return max;
+	}
+
+	/*
+	 * Return the node whose eccentricity is not known yet with the greatest
+	 * upper bound (or -1 if all the eccentricities are known), breaking ties
+	 * by the greatest sum of distances.
+	 */
+	private int getMaxUpper(int[] lower, int[] upper, long[] sum) {
+		int max = -1;
+		for (int v = 0; v < n; v++) {
+			if (lower[v] < upper[v]
+					&& (max < 0 || upper[v] > upper[max]
+							|| (upper[v] == upper[max] && sum[v] > sum[max]))) {
+				max = v;
+			}
+		}
+		return max;
+	}
+
+	/*
+	 * Return the node whose forward eccentricity is not known yet with the
+	 * smallest lower bound (or -1 if all the eccentricities are known),
+	 * breaking ties by the smallest sum of distances.
+	 */
+	private int getMinLower() {
+		int min = -1;
+		for (int v = 0; v < n; v++) {
+			if (lowerF[v] < upperF[v]
+					&& (min < 0 || lowerF[v] < lowerF[min]
+							|| (lowerF[v] == lowerF[min]
+									&& sumF[v] < sumF[min]))) {
+				min = v;
+			}
+		}
+		return min;
+	}
+
+	/*
+	 * Execute the SumSweep heuristic and then the adaptive visits. The method
+	 * returns the diameter, the radius, the number of BFSes/Dijkstras
+	 * executed, and the execution time (in milliseconds), or null if the
+	 * graph is not (strongly) connected.
+	 */
+	public long[] run(ArrayGraph graph) {
+		try {
+			long startTime = System.currentTimeMillis();
+			this.graph = graph;
+			n = graph.getN();
+			wsF = new VisitWorkspace(n);
+			wsB = new VisitWorkspace(n);
+			lowerF = new int[n];
+			upperF = new int[n];
+			sumF = new long[n];
+			if (graph.isOriented()) {
+				lowerB = new int[n];
+				upperB = new int[n];
+				sumB = new long[n];
+			} else {
+				lowerB = lowerF;
+				upperB = upperF;
+				sumB = sumF;
+			}
+			for (int v = 0; v < n; v++) {
+				upperF[v] = Integer.MAX_VALUE;
+				upperB[v] = Integer.MAX_VALUE;
+			}
+			visits = 0;
+			// The SumSweep heuristic starts from the node with maximum degree
+			// and alternates forward and backward visits
+			AdjacencyLists lists = graph.getAdjacencyLists();
+			int s = 0;
+			for (int v = 1; v < n; v++) {
+				if (lists.getDegree(v) > lists.getDegree(s)) {
+					s = v;
+				}
+			}
+			boolean isConnected = forward(s);
+			for (int i = 1; i < SWEEPS && isConnected; i++) {
+				if (graph.isOriented() && i % 2 == 1) {
+					s = getMaxSum(lowerB, upperB, sumB);
+					isConnected = s < 0 || backward(s);
+				} else {
+					s = getMaxSum(lowerF, upperF, sumF);
+					isConnected = s < 0 || forward(s);
+				}
+			}
+			for (int step = 0; isConnected; step = (step + 1) % 3) {
+				long[] bounds = getBounds();
+				Lasagne.logger.info("Diameter bounds: " + bounds[0] + " "
+						+ bounds[1] + ", radius bounds: " + bounds[2] + " "
+						+ bounds[3]);
+				boolean isDiameterKnown = bounds[0] == bounds[1];
+				boolean isRadiusKnown = bounds[2] == bounds[3];
+				if (isDiameterKnown && isRadiusKnown) {
+					break;
+				}
+				if (step == DIAMETER_FORWARD && !isDiameterKnown) {
+					s = getMaxUpper(lowerF, upperF, sumF);
+					isConnected = s < 0 || visit(s);
+				} else if (step == DIAMETER_BACKWARD && !isDiameterKnown
+						&& graph.isOriented()) {
+					s = getMaxUpper(lowerB, upperB, sumB);
+					isConnected = s < 0 || visit(s);
+				} else if (step == RADIUS && !isRadiusKnown) {
+					s = getMinLower();
+					isConnected = s < 0 || visit(s);
+				}
+			}
+			if (!isConnected) {
+				Lasagne.logger.warn("The graph is not strongly connected");
+				return null;
+			}
+			long[] bounds = getBounds();
+			long[] rst = new long[4];
+			rst[0] = bounds[0];
+			rst[1] = bounds[2];
+			rst[2] = visits;
+			long endTime = System.currentTimeMillis();
+			rst[3] = endTime - startTime;
+			return rst;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		}
+	}
+
+	/*
+	 * Execute a forward and a backward visit from s (only the forward one if
+	 * the graph is undirected), and update the bounds. The method returns
+	 * false if the graph is not strongly connected.
+	 */
+	private boolean visit(int s) {
+		if (!forward(s)) {
+			return false;
+		}
+		if (!graph.isOriented()) {
+			return true;
+		}
+		if (!backward(s)) {
+			return false;
+		}
+		// The forward visit has not bounded the backward eccentricities from
+		// above, since eB(s) was not known yet
+		int e = upperB[s];
+		for (int i = 0; i < n; i++) {
+			int v = wsF.getVisitedNode(i);
+			upperB[v] = Math.min(upperB[v], wsF.getDistance(v) + e);
+		}
+		return true;
+	}
+}
@@ -34,9 +34,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
 import lasagne.gui.Lasagne;
-import lasagne.utilities.ArrayUtils;
-import lasagne.utilities.PairArray;
 
 public class FourSweep {
 	/*
@@ -67,40 +66,43 @@ public class FourSweep {
 			// Run a BFS/Dijkstra from a random node r1: let a1 be the farthest
 			// node
 			int r1 = (int) (Math.random() * n);
-			int[] resu = graph.visit(r1).getFirstArray();
-			int a1 = ArrayUtils.getIndexOfMax(resu);
+			VisitWorkspace ws = new VisitWorkspace(n);
+			graph.visit(r1, ws);
+			int a1 = ws.getFarthestNode();
 			// Update lower bound
-			if (lowerb < resu[a1]) {
-				lowerb = resu[a1];
+			if (lowerb < ws.getEccentricity()) {
+				lowerb = ws.getEccentricity();
 			}
 			// Run a BFS/Dijkstra from a1: let b1 be the farthest node
-			PairArray ru = graph.visit(a1);
-			resu = ru.getFirstArray();
-			int b1 = ArrayUtils.getIndexOfMax(resu);
+			graph.visit(a1, ws);
+			int b1 = ws.getFarthestNode();
 			// Update lower bound
-			if (resu[b1] > lowerb) {
-				lowerb = resu[b1];
+			if (ws.getEccentricity() > lowerb) {
+				lowerb = ws.getEccentricity();
 			}
 			// Let r2 be the node in the middle of the path between a1 and b1
-			int r2 = ArrayUtils.getMiddleNode(b1, ru);
+			int r2 = ws.getMiddleNode(b1);
 			// Run a BFS/Dijkstra from r2: let a2 be the farthest node
-			ru = graph.visit(r2);
-			resu = ru.getFirstArray();
-			int a2 = ArrayUtils.getIndexOfMax(resu);
+			graph.visit(r2, ws);
+			int a2 = ws.getFarthestNode();
 			// Update lower bound
-			if (resu[a2] > lowerb) {
-				lowerb = resu[a2];
+			if (ws.getEccentricity() > lowerb) {
+				lowerb = ws.getEccentricity();
 			}
 			// Run a BFS/Dijkstra from a2: let b2 be the farthest node
-			ru = graph.visit(a2);
-			resu = ru.getFirstArray();
-			int b2 = ArrayUtils.getIndexOfMax(resu);
+			graph.visit(a2, ws);
+			int b2 = ws.getFarthestNode();
 			// Update lower bound
-			if (resu[b2] > lowerb) {
-				lowerb = resu[b2];
+			if (ws.getEccentricity() > lowerb) {
+				lowerb = ws.getEccentricity();
 			}
 			// Let u be the node in the middle of the path between a2 and b2
-			u = ArrayUtils.getMiddleNode(b2, ru);
+			u = ws.getMiddleNode(b2);
+			// Report the farthest nodes by their original identifiers (the
+			// graph could have been reordered)
+			Lasagne.logger.info("Nodes " + graph.getLabel(a2) + " and "
+					+ graph.getLabel(b2) + " are at distance "
+					+ ws.getEccentricity());
 			long endTime = System.currentTimeMillis();
 			Lasagne.logger.info("Execution time: " + (endTime - startTime));
 			return new long[] { lowerb, u, a2, b2 };
@@ -129,36 +131,42 @@ public class FourSweep {
 			// Run a forward BFS/Dijkstra from a random node r: let a1 be the
 			// farthest node
 			int r = (int) (Math.random() * n);
-			int[] resu1 = graph.visit(r).getFirstArray();
-			int a1 = ArrayUtils.getIndexOfMax(resu1);
+			VisitWorkspace ws1 = new VisitWorkspace(n);
+			graph.visit(r, ws1);
+			int a1 = ws1.getFarthestNode();
 			// Run a backward BFS/Dijkstra from a1: let b1 be the farthest node
-			PairArray ru1 = graph.backwardVisit(a1);
-			resu1 = ru1.getFirstArray();
-			int b1 = ArrayUtils.getIndexOfMax(resu1);
+			graph.backwardVisit(a1, ws1);
+			int b1 = ws1.getFarthestNode();
 			// Derive eccB(a1)
-			int eccBa1 = resu1[b1];
+			int eccBa1 = ws1.getEccentricity();
 			// Run a backward BFS/Dijkstra from r: let a2 be the farthest node
-			int[] resu2 = graph.backwardVisit(r).getFirstArray();
-			int a2 = ArrayUtils.getIndexOfMax(resu2);
+			VisitWorkspace ws2 = new VisitWorkspace(n);
+			graph.backwardVisit(r, ws2);
+			int a2 = ws2.getFarthestNode();
 			// Run a forward BFS/Dijkstra from a2: let b2 be the farthest node
-			PairArray ru2 = graph.visit(a2);
-			resu2 = ru2.getFirstArray();
-			int b2 = ArrayUtils.getIndexOfMax(resu2);
+			graph.visit(a2, ws2);
+			int b2 = ws2.getFarthestNode();
 			// Derive eccF(a2)
-			int eccFa2 = resu2[b2];
+			int eccFa2 = ws2.getEccentricity();
 			// If eccB(a1) > eccF(a2), then set u equal to the middle node
 			// between
 			// a1 and b1 and l equal to eccB(a1). Otherwise, set u equal to the
 			// middle node between a2 and b2 and l equal to eccF (a2).
 			if (eccBa1 > eccFa2) {
-				int u = ArrayUtils.getMiddleNode(b1, ru1);
+				int u = ws1.getMiddleNode(b1);
 				int l = eccBa1;
+				Lasagne.logger.info("Node " + graph.getLabel(a1)
+						+ " is at distance " + l + " from node "
+						+ graph.getLabel(b1));
 				long endTime = System.currentTimeMillis();
 				Lasagne.logger.info("Execution time: " + (endTime - startTime));
 				return new long[] { l, u };
 			} else {
-				int u = ArrayUtils.getMiddleNode(b2, ru2);
+				int u = ws2.getMiddleNode(b2);
 				int l = eccFa2;
+				Lasagne.logger.info("Node " + graph.getLabel(b2)
+						+ " is at distance " + l + " from node "
+						+ graph.getLabel(a2));
 				long endTime = System.currentTimeMillis();
 				Lasagne.logger.info("Execution time: " + (endTime - startTime));
 				return new long[] { l, u };
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
+
+/*
+ * This class computes the maximum eccentricity of the nodes of a fringe of
+ * the iFUB method (see IFub and WeightedIFub), identified by a range of
+ * positions whose meaning is defined by the eccentricity method. The visits
+ * from the nodes of a fringe are independent: if more than one thread is
+ * used, the range is split among the tasks of a fork-join pool, each of which
+ * visits its nodes by means of the workspace of its thread and updates the
+ * maximum eccentricity shared by all the tasks. As soon as the maximum
+ * reaches the upper bound, the tasks skip their remaining visits, as the
+ * sequential loop does.
+ */
+abstract class FringeVisits {
+	/*
+	 * This class implements the task which visits the nodes of the fringe
+	 * from from to to (excluded), by splitting them in two halves.
+	 */
+	private class FringeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int from;
+		private int to;
+
+		FringeTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new FringeTask(from, middle), new FringeTask(middle,
+						to));
+			} else if (maximum.get() < ub) {
+				int e = eccentricity(from, workspaces.get(), ub, 1);
+				visits.incrementAndGet();
+				int m = maximum.get();
+				while (e > m && !maximum.compareAndSet(m, e)) {
+					m = maximum.get();
+				}
+			}
+		}
+	}
+
+	private ArrayGraph graph;
+	private ForkJoinPool pool;
+	private VisitWorkspace ws;
+	private ThreadLocal<VisitWorkspace> workspaces;
+	private AtomicInteger maximum = new AtomicInteger();
+	private AtomicInteger visits = new AtomicInteger();
+	private int ub;
+
+	/*
+	 * Prepare the visits of the fringes of the graph by means of the given
+	 * number of threads.
+	 */
+	FringeVisits(final ArrayGraph graph, int threads) {
+		this.graph = graph;
+		if (threads > 1) {
+			pool = new ForkJoinPool(threads);
+			workspaces = new ThreadLocal<VisitWorkspace>() {
+				protected VisitWorkspace initialValue() {
+					return new VisitWorkspace(graph.getN());
+				}
+			};
+		} else {
+			ws = new VisitWorkspace(graph.getN());
+		}
+	}
+
+	/*
+	 * Return the eccentricity of the node of the fringe at position j if it
+	 * is smaller than ub, computed by means of the workspace and of the given
+	 * number of threads.
+	 */
+	abstract int eccentricity(int j, VisitWorkspace ws, int ub, int threads);
+
+	/*
+	 * Return the number of visits executed so far.
+	 */
+	int getVisits() {
+		return visits.get();
+	}
+
+	/*
+	 * Return the maximum between lb and the eccentricities of the nodes of
+	 * the fringe from from to to (excluded). The visits stop as soon as the
+	 * maximum is equal to ub.
+	 */
+	int max(int from, int to, int lb, int ub) {
+		if (pool == null) {
+			// The visits are executed one after the other, each one by
+			// means of the threads of the graph
+			int m = lb;
+			for (int j = from; j < to && m < ub; j++) {
+				int e = eccentricity(j, ws, ub, graph.getThreads());
+				visits.incrementAndGet();
+				if (e > m) {
+					m = e;
+				}
+			}
+			return m;
+		}
+		this.ub = ub;
+		maximum.set(lb);
+		if (from < to && lb < ub) {
+			pool.invoke(new FringeTask(from, to));
+		}
+		return maximum.get();
+	}
+
+	/*
+	 * Release the threads of the pool.
+	 */
+	void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+}
@@ -34,18 +34,44 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.PendantTreeKernel;
+import lasagne.graphs.VisitWorkspace;
 import lasagne.gui.Lasagne;
 import lasagne.utilities.ArrayUtils;
 import lasagne.utilities.PairArray;
 
 public class IFub {
+	/*
+	 * Return the maximum of d(x, y) + h(x) + h(y) over the nodes y of the
+	 * kernel different from x and reachable from it, given the distances from
+	 * x stored in the workspace (h(x) if there is no such node).
+	 */
+	private static int getExtendedEccentricity(PendantTreeKernel ptk, int x,
+			VisitWorkspace ws) {
+		int ecc = 0;
+		for (int i = 1; i < ws.getVisitedNodes(); i++) {
+			int y = ws.getVisitedNode(i);
+			if (ws.getDistance(y) + ptk.getHeight(y) > ecc) {
+				ecc = ws.getDistance(y) + ptk.getHeight(y);
+			}
+		}
+		return ecc + ptk.getHeight(x);
+	}
+
+	private boolean isKernelized;
+	// The number of threads visiting the nodes of a fringe
+	private int threads = 1;
+
 	/*
 	 * This is the main method of this class: it just invokes the correct iFUB
-	 * method, depending on whether the graph is directed or not.
+	 * method, depending on whether the graph is directed or not (and on
+	 * whether the kernelization of undirected unweighted graphs is active).
 	 */
 	public long[] run(ArrayGraph graph, int k) {
 		if (graph.isOriented()) {
 			return directed(graph, k);
+		} else if (isKernelized && !graph.isWeighted()) {
+			return kernelized(graph, k);
 		} else {
 			return undirected(graph, k);
 		}
@@ -59,7 +85,8 @@ public class IFub {
 	 * of the lower and the upper bounds, the number of BFSes executed, and the
 	 * execution time (in milliseconds).
 	 */
-	public long[] directed(ArrayGraph graph, int k) {
+	public long[] directed(final ArrayGraph graph, int k) {
+		FringeVisits fv = null;
 		try {
 			long startTime = System.currentTimeMillis();
 			int n = graph.getN();
@@ -69,6 +96,20 @@ public class IFub {
 			int u = (int) fs[1];
 			// We keep trace of the number of BFSes executed
 			int vis = 4;
+			// The BFSes from the nodes of BiB(u) are stored in the fringe as
+			// the node identifiers, and those from the nodes of BiF(u) as
+			// their complements
+			final int[] fringe = new int[n];
+			fv = new FringeVisits(graph, threads) {
+				int eccentricity(int j, VisitWorkspace ws, int ub, int t) {
+					if (fringe[j] >= 0) {
+						return graph.eccentricity(fringe[j], ws, ub, t);
+					} else {
+						return graph.backwardEccentricity(~fringe[j], ws, ub,
+								t);
+					}
+				}
+			};
 			// Compute the forward eccentricity of u
 			PairArray ru = graph.visit(u);
 			vis++;
@@ -96,45 +137,26 @@ public class IFub {
 			while ((ub - lb) > k) {
 				// Compute the maximum between the current lower bound and the
 				// maximum eccentricity in BiB(u) and in BiF(u)
-				int Biu = lb;
+				int size = 0;
 				for (int j = 0; j < n; j++) {
 					if (bresu[j] == i) {
 						// Node j is in BiB(u)
-						int[] bfs = graph.visit(j).getFirstArray();
-						vis++;
-						int eccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-						// Update maximum found eccentricity if necessary
-						if (eccj > Biu) {
-							Biu = eccj;
-						}
-						// Optimization: it is useless going on since we have
-						// found
-						// a lower bound equal to the upper bound
-						if (Biu == ub) {
-							break;
-						}
+						fringe[size++] = j;
 					}
 				}
+				// The visits stop as soon as we have found a lower bound
+				// equal to the upper bound
+				int Biu = fv.max(0, size, lb, ub);
 				// Optimization: we explore the forward fringe only if necessary
 				if (Biu < ub) {
+					size = 0;
 					for (int j = 0; j < n; j++) {
-						// Node j is in BiF(u)
 						if (resu[j] == i) {
-							int[] bfs = graph.backwardVisit(j).getFirstArray();
-							vis++;
-							int beccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-							// Update maximum found eccentricity if necessary
-							if (beccj > Biu) {
-								Biu = beccj;
-							}
-						}
-						// Optimization: it is useless going on since we have
-						// found
-						// a lower bound equal to the upper bound
-						if (Biu == ub) {
-							break;
+							// Node j is in BiF(u)
+							fringe[size++] = ~j;
 						}
 					}
+					Biu = fv.max(0, size, Biu, ub);
 				}
 				if (Biu > 2 * (i - 1)) {
 					ub = Biu;
@@ -149,7 +171,7 @@ public class IFub {
 			long[] rst = new long[4];
 			rst[0] = lb;
 			rst[1] = ub;
-			rst[2] = vis;
+			rst[2] = vis + fv.getVisits();
 			long endTime = System.currentTimeMillis();
 			rst[3] = endTime - startTime;
 			return rst;
@@ -161,9 +183,136 @@ public class IFub {
 					.info("======= Java Exception: if you want you can report it\n"
 							+ sw + "=======");
 			return null;
+		} finally {
+			if (fv != null) {
+				fv.shutdown();
+			}
 		}
 	}
 
+	/*
+	 * In the undirected unweighted case, the iFUB method can be executed on the
+	 * kernel of the graph, obtained by removing the trees hanging from its
+	 * nodes (see PendantTreeKernel). The level of a node x of the kernel is
+	 * d(u, x) + h(x), where h(x) is the height of its hanging trees, and the
+	 * eccentricity of x is replaced by the maximum of d(x, y) + h(x) + h(y)
+	 * over the other nodes y of the kernel. Since this value is at most 2(i -
+	 * 1) for two nodes whose levels are at most i - 1, the method computes
+	 * exactly the diameter of the graph. The arguments and the returned
+	 * values are the same of the undirected method (the BFSes are executed on
+	 * the kernel).
+	 */
+	public long[] kernelized(ArrayGraph graph, int k) {
+		FringeVisits fv = null;
+		try {
+			long startTime = System.currentTimeMillis();
+			final PendantTreeKernel ptk = new PendantTreeKernel(graph);
+			final ArrayGraph kernel = ptk.getKernel();
+			int n = kernel.getN();
+			Lasagne.logger.info("Kernel with " + n + " nodes and "
+					+ kernel.getM() + " edges");
+			// Compute lower bound l and starting node u via the 4-sweep method
+			// executed on the kernel
+			long[] fs = FourSweep.run(kernel);
+			long l = fs[0];
+			int u = (int) fs[1];
+			// We keep trace of the number of BFSes executed
+			int vis = 4;
+			// The nodes of the fringe are visited by means of the threads
+			final int[] fringe = new int[n];
+			fv = new FringeVisits(kernel, threads) {
+				int eccentricity(int j, VisitWorkspace ws, int ub, int t) {
+					kernel.visit(fringe[j], ws, t);
+					return getExtendedEccentricity(ptk, fringe[j], ws);
+				}
+			};
+			// Run a BFS from node u and compute the level of each node
+			int[] resu = kernel.visit(u).getFirstArray();
+			vis++;
+			// Set i equal to the eccentricity of u in the graph, and the lower
+			// bound to the maximum inner diameter of the hanging trees
+			int i = 0;
+			int lb = (int) l;
+			for (int x = 0; x < n; x++) {
+				if (resu[x] >= 0) {
+					resu[x] = resu[x] + ptk.getHeight(x);
+					if (resu[x] > i) {
+						i = resu[x];
+					}
+					if (ptk.getInnerDiameter(x) > lb) {
+						lb = ptk.getInnerDiameter(x);
+					}
+				}
+			}
+			if (i > lb) {
+				lb = i;
+			}
+			// Set upper bound
+			int ub = 2 * i;
+			while ((ub - lb) > k) {
+				// Compute the maximum between the current lower bound and the
+				// maximum extended eccentricity in Bi(u)
+				int size = 0;
+				for (int j = 0; j < n; j++) {
+					if (resu[j] == i) {
+						// Node j is in Bi(u)
+						fringe[size++] = j;
+					}
+				}
+				int Biu = fv.max(0, size, lb, ub);
+				if (Biu > 2 * (i - 1)) {
+					ub = Biu;
+					lb = Biu;
+					break;
+				} else {
+					lb = Biu;
+					ub = 2 * (i - 1);
+				}
+				i = i - 1;
+			}
+			long[] rst = new long[4];
+			rst[0] = lb;
+			rst[1] = ub;
+			rst[2] = vis + fv.getVisits();
+			long endTime = System.currentTimeMillis();
+			rst[3] = endTime - startTime;
+			return rst;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		} finally {
+			if (fv != null) {
+				fv.shutdown();
+			}
+		}
+	}
+
+	/*
+	 * Activate the kernelization of undirected unweighted graphs (see the
+	 * kernelized method).
+	 */
+	public void setKernelized(boolean isKernelized) {
+		this.isKernelized = isKernelized;
+	}
+
+	/*
+	 * Set the number of threads visiting the nodes of each fringe in parallel
+	 * (if it is one, the nodes are visited one after the other by means of
+	 * the threads of the graph).
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"The number of threads must be positive");
+		}
+		this.threads = threads;
+	}
+
 	/*
 	 * In the undirected case, the iFUB method is described in Crescenzi,
 	 * Grossi, Habib, Lanzi, Marino, 'On Computing the Diameter of Real-World
@@ -172,7 +321,8 @@ public class IFub {
 	 * of the lower and the upper bounds, the number of BFSes executed, and the
 	 * execution time (in milliseconds).
 	 */
-	public long[] undirected(ArrayGraph graph, int k) {
+	public long[] undirected(final ArrayGraph graph, int k) {
+		FringeVisits fv = null;
 		try {
 			long startTime = System.currentTimeMillis();
 			int n = graph.getN();
@@ -182,6 +332,13 @@ public class IFub {
 			int u = (int) fs[1];
 			// We keep trace of the number of BFSes executed
 			int vis = 4;
+			// The nodes of the fringe are visited by means of the threads
+			final int[] fringe = new int[n];
+			fv = new FringeVisits(graph, threads) {
+				int eccentricity(int j, VisitWorkspace ws, int ub, int t) {
+					return graph.eccentricity(fringe[j], ws, ub, t);
+				}
+			};
 			// Run a BFS from node u: let a be the farthest node
 			PairArray ru = graph.visit(u);
 			int[] resu = ru.getFirstArray();
@@ -199,25 +356,16 @@ public class IFub {
 			while ((ub - lb) > k) {
 				// Compute the maximum between the current lower bound and the
 				// maximum eccentricity in Bi(u)
-				int Biu = lb;
+				int size = 0;
 				for (int j = 0; j < n; j++) {
 					if (resu[j] == i) {
 						// Node j is in Bi(u)
-						int[] bfs = graph.visit(j).getFirstArray();
-						vis++;
-						int eccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-						// Update maximum found eccentricity if necessary
-						if (eccj > Biu) {
-							Biu = eccj;
-						}
-						// Optimization: it is useless going on since we have
-						// found
-						// a lower bound equal to the upper bound
-						if (Biu == ub) {
-							break;
-						}
+						fringe[size++] = j;
 					}
 				}
+				// The visits stop as soon as we have found a lower bound
+				// equal to the upper bound
+				int Biu = fv.max(0, size, lb, ub);
 				// If the current maximum eccentricity is greater than 2(i-1),
 				// then
 				// we have found the diameter
@@ -235,7 +383,7 @@ public class IFub {
 			long[] rst = new long[4];
 			rst[0] = lb;
 			rst[1] = ub;
-			rst[2] = vis;
+			rst[2] = vis + fv.getVisits();
 			long endTime = System.currentTimeMillis();
 			rst[3] = endTime - startTime;
 			return rst;
@@ -247,6 +395,10 @@ public class IFub {
 					.info("======= Java Exception: if you want you can report it\n"
 							+ sw + "=======");
 			return null;
+		} finally {
+			if (fv != null) {
+				fv.shutdown();
+			}
 		}
 	}
 }
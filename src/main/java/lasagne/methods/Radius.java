@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import lasagne.graphs.AdjacencyLists;
+import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
+import lasagne.gui.Lasagne;
+
+/*
+ * This class implements a method for computing the radius and the center
+ * (that is, the set of nodes whose eccentricity is equal to the radius) of a
+ * strongly connected directed (or connected undirected) graph. In the
+ * directed case, the eccentricity of a node can be its forward eccentricity
+ * eF(v), its backward eccentricity eB(v), or the maximum of the two. For each
+ * node v, the method keeps a lower bound on its eccentricity, which is
+ * tightened after a forward and a backward visit from a source s by means of
+ * the triangle inequality: max(d(v, s), eF(s) - d(s, v)) <= eF(v) and
+ * max(d(s, v), eB(s) - d(v, s)) <= eB(v). The first sources are peripheral
+ * nodes, chosen as in the SumSweep heuristic (starting from the node with
+ * maximum degree, each next source is the node with maximum sum of the
+ * distances from and to the previous ones), since their large eccentricities
+ * imply strong lower bounds. Afterwards, the sources are chosen as the nodes
+ * with the smallest lower bound, so that the smallest eccentricity found (an
+ * upper bound on the radius) quickly meets the lower bounds of all the other
+ * nodes, which are then discarded. Finally, the nodes whose lower bound is
+ * equal to the radius are checked by visits that stop as soon as a node
+ * farther than the radius is reached.
+ */
+public class Radius {
+	// The number of peripheral sources visited at the beginning
+	private static final int SWEEPS = 4;
+	// The eccentricities the radius can be computed with
+	public static final int FORWARD = 0;
+	public static final int BACKWARD = 1;
+	public static final int BOTH = 2;
+
+	private int direction = FORWARD;
+	private ArrayGraph graph;
+	private int n;
+	// The workspaces of the forward and of the backward visits (the same
+	// workspace if the graph is undirected)
+	private VisitWorkspace wsF;
+	private VisitWorkspace wsB;
+	private int[] lower;
+	// The nodes not discarded yet are stored in the first candidates
+	// positions
+	private int[] candidate;
+	private int candidates;
+	private int[] center;
+	// The sums of the distances between each node and the sources
+	private long[] sum;
+	private int visits;
+
+	/*
+	 * Return whether the eccentricity of v is at most r, by means of visits
+	 * which stop as soon as a node farther than r is reached.
+	 */
+	private boolean check(int v, int r) {
+		if (direction != BACKWARD || !graph.isOriented()) {
+			visits++;
+			if (graph.eccentricity(v, wsF, r + 1) > r) {
+				return false;
+			}
+		}
+		if (direction != FORWARD && graph.isOriented()) {
+			visits++;
+			if (graph.backwardEccentricity(v, wsB, r + 1) > r) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Return the center computed by the last execution.
+	 */
+	public int[] getCenter() {
+		return center;
+	}
+
+	/*
+	 * Execute the visits from the nodes with the smallest lower bound, until
+	 * the radius is known, and then check the remaining candidates to the
+	 * center. The method returns the radius, the number of nodes in the
+	 * center, the number of BFSes/Dijkstras executed, and the execution time
+	 * (in milliseconds), or null if the graph is not (strongly) connected.
+	 */
+	public long[] run(ArrayGraph graph) {
+		try {
+			long startTime = System.currentTimeMillis();
+			this.graph = graph;
+			n = graph.getN();
+			wsF = new VisitWorkspace(n);
+			wsB = graph.isOriented() ? new VisitWorkspace(n) : wsF;
+			lower = new int[n];
+			candidate = new int[n];
+			int[] eccentricity = new int[n];
+			for (int v = 0; v < n; v++) {
+				candidate[v] = v;
+				eccentricity[v] = -1;
+			}
+			candidates = n;
+			center = null;
+			visits = 0;
+			AdjacencyLists lists = graph.getAdjacencyLists();
+			sum = new long[n];
+			int radius = Integer.MAX_VALUE;
+			// The sources are counted apart from the visits, since each
+			// source of a directed graph is visited twice
+			for (int sources = 0; candidates > 0; sources++) {
+				int s = candidate[0];
+				int min = candidate[0];
+				for (int i = 1; i < candidates; i++) {
+					int v = candidate[i];
+					if (lower[v] < lower[min] || (lower[v] == lower[min]
+							&& lists.getDegree(v) > lists.getDegree(min))) {
+						min = v;
+					}
+					if (sources == 0 ? lists.getDegree(v) > lists.getDegree(s)
+							: sum[v] > sum[s]) {
+						s = v;
+					}
+				}
+				if (lower[min] >= radius) {
+					break;
+				}
+				if (sources >= SWEEPS) {
+					s = min;
+				}
+				eccentricity[s] = visit(s);
+				if (eccentricity[s] < 0) {
+					Lasagne.logger.warn("The graph is not strongly connected");
+					return null;
+				}
+				radius = Math.min(radius, eccentricity[s]);
+				int c = 0;
+				for (int i = 0; i < candidates; i++) {
+					int v = candidate[i];
+					if (v != s && lower[v] <= radius) {
+						candidate[c++] = v;
+					}
+				}
+				candidates = c;
+				Lasagne.logger.info("Visit from " + s + ": radius at most "
+						+ radius + ", " + candidates + " candidates");
+			}
+			int size = 0;
+			for (int v = 0; v < n; v++) {
+				if (eccentricity[v] == radius) {
+					candidate[candidates++] = v;
+				}
+			}
+			for (int i = 0; i < candidates; i++) {
+				int v = candidate[i];
+				if (eccentricity[v] == radius || check(v, radius)) {
+					candidate[size++] = v;
+				}
+			}
+			center = new int[size];
+			System.arraycopy(candidate, 0, center, 0, size);
+			long[] rst = new long[4];
+			rst[0] = radius;
+			rst[1] = size;
+			rst[2] = visits;
+			long endTime = System.currentTimeMillis();
+			rst[3] = endTime - startTime;
+			return rst;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		}
+	}
+
+	/*
+	 * Set which eccentricities the radius has to be computed with (forward,
+	 * backward, or the maximum of the two): this is meaningful only for
+	 * directed graphs.
+	 */
+	public void setDirection(int direction) {
+		if (direction < FORWARD || direction > BOTH) {
+			throw new IllegalArgumentException("Unknown direction: "
+					+ direction);
+		}
+		this.direction = direction;
+	}
+
+	/*
+	 * Execute a forward visit from s (and a backward one if the graph is
+	 * directed), and update the lower bounds of the candidates. The method
+	 * returns the eccentricity of s, or -1 if the graph is not strongly
+	 * connected.
+	 */
+	private int visit(int s) {
+		graph.visit(s, wsF);
+		visits++;
+		if (wsF.getVisitedNodes() < n) {
+			return -1;
+		}
+		if (wsB != wsF) {
+			graph.backwardVisit(s, wsB);
+			visits++;
+			if (wsB.getVisitedNodes() < n) {
+				return -1;
+			}
+		}
+		int eF = wsF.getEccentricity();
+		int eB = wsB.getEccentricity();
+		for (int i = 0; i < candidates; i++) {
+			int v = candidate[i];
+			int from = wsF.getDistance(v);
+			int to = wsB.getDistance(v);
+			int l = 0;
+			if (direction != BACKWARD) {
+				l = Math.max(to, eF - from);
+			}
+			if (direction != FORWARD) {
+				l = Math.max(l, Math.max(from, eB - to));
+			}
+			lower[v] = Math.max(lower[v], l);
+			sum[v] += from + to;
+		}
+		if (direction == FORWARD) {
+			return eF;
+		} else if (direction == BACKWARD) {
+			return eB;
+		}
+		return Math.max(eF, eB);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.methods;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lasagne.gui.Lasagne;
+
+/*
+ * This class executes a given number of independent runs of a randomized
+ * method (such as 4-sweep or iFUB) concurrently, on a fixed pool of threads
+ * sharing the graph (which is only read by the runs). The results are
+ * collected by the invoking thread in order of completion, so that they can
+ * be aggregated and reported while the other runs are still executing, and
+ * each of them is returned together with the index of its run. Each
+ * run should use its own instance of the method and its own workspaces.
+ */
+public abstract class RepeatedRuns {
+	/*
+	 * Return the number of threads each run can use when the given number of
+	 * runs is executed by means of the given total number of threads.
+	 */
+	public static int getThreadsPerRun(int runs, int threads) {
+		return Math.max(1, threads / Math.max(1, runs));
+	}
+
+	/*
+	 * Notify that the given run has been completed with the given result. The
+	 * method is invoked by the thread which invoked the run method, in order
+	 * of completion: subclasses can override it in order to aggregate or
+	 * report the results.
+	 */
+	protected void completed(int run, long[] result) {
+	}
+
+	/*
+	 * Execute one run of the method and return its result (null if the run
+	 * failed).
+	 */
+	protected abstract long[] execute(int run) throws Exception;
+
+	/*
+	 * Execute the given number of runs by means of the given number of threads
+	 * at most. The method returns the results of the runs indexed by run, or
+	 * null if one of the runs failed (in which case the runs not yet started
+	 * are cancelled).
+	 */
+	public long[][] run(int runs, int threads) {
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1,
+				Math.min(runs, threads)));
+		try {
+			// Each result is preceded by the index of its run
+			CompletionService<long[]> cs;
+			cs = new ExecutorCompletionService<long[]>(pool);
+			for (int r = 0; r < runs; r++) {
+				final int run = r;
+				cs.submit(new Callable<long[]>() {
+					public long[] call() throws Exception {
+						long[] result = execute(run);
+						if (result == null) {
+							return null;
+						}
+						long[] indexed = new long[result.length + 1];
+						indexed[0] = run;
+						System.arraycopy(result, 0, indexed, 1, result.length);
+						return indexed;
+					}
+				});
+			}
+			long[][] results = new long[runs][];
+			for (int i = 0; i < runs; i++) {
+				Future<long[]> f = cs.take();
+				long[] indexed = f.get();
+				if (indexed == null) {
+					return null;
+				}
+				int run = (int) indexed[0];
+				results[run] = new long[indexed.length - 1];
+				System.arraycopy(indexed, 1, results[run], 0,
+						results[run].length);
+				completed(run, results[run]);
+			}
+			return results;
+		} catch (Exception e) {
+			StringWriter sw = new StringWriter();
+			PrintWriter pw = new PrintWriter(sw);
+			e.printStackTrace(pw);
+			Lasagne.logger
+					.info("======= Java Exception: if you want you can report it\n"
+							+ sw + "=======");
+			return null;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
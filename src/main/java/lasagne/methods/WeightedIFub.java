@@ -34,6 +34,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import lasagne.graphs.ArrayGraph;
+import lasagne.graphs.VisitWorkspace;
 import lasagne.gui.Lasagne;
 import lasagne.utilities.ArrayUtils;
 import lasagne.utilities.PairArray;
@@ -62,6 +63,9 @@ public class WeightedIFub {
 		}
 	}
 
+	// The number of threads visiting the nodes of a fringe
+	private int threads = 1;
+
 	/*
 	 * This is the distribution method used by the quicksort algorithm (see
 	 * Crescenzi, Gambosi, Grossi, 'Strutture di Dati e Algoritmi')
@@ -162,7 +166,8 @@ public class WeightedIFub {
 	 * of the lower and the upper bounds, the number of BFSes executed, and the
 	 * execution time (in milliseconds).
 	 */
-	public long[] directed(ArrayGraph graph, int k) {
+	public long[] directed(final ArrayGraph graph, int k) {
+		FringeVisits fv = null;
 		try {
 			long startTime = System.currentTimeMillis();
 			int n = graph.getN();
@@ -211,7 +216,21 @@ public class WeightedIFub {
 			// in non decreasing way (differently from the paper we admit
 			// repeated
 			// values)
-			Distance[] dist = merge(fdist, bdist);
+			final Distance[] dist = merge(fdist, bdist);
+			// The Dijkstras from the nodes of a fringe (a range of dist) are
+			// executed by means of the threads
+			fv = new FringeVisits(graph, threads) {
+				int eccentricity(int j, VisitWorkspace ws, int ub, int t) {
+					if (!dist[j].forward) {
+						// Node j is in BdiB(u)
+						return graph.eccentricity(dist[j].index, ws, ub, t);
+					} else {
+						// Node j is in BdiF(u)
+						return graph.backwardEccentricity(dist[j].index, ws,
+								ub, t);
+					}
+				}
+			};
 			// Set i equal to the index of the maximum distance
 			int i = dist.length - 1;
 			// Initialize lower bound lb
@@ -225,39 +244,14 @@ public class WeightedIFub {
 			// Initialize upper bound ub
 			int ub = 2 * dist[i].dist;
 			while ((ub - lb) > k) {
-				int Biu = lb;
 				int j = i;
 				while (j >= 0 && dist[j].dist == dist[i].dist) {
-					if (!dist[j].forward) {
-						// Node j is in BdiB(u)
-						int[] bfs = graph.visit(dist[j].index).getFirstArray();
-						vis++;
-						int eccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-						// Update maximum found eccentricity if necessary
-						if (eccj > Biu) {
-							Biu = eccj;
-						}
-					} else {
-						// Node j is in BdiF(u)
-						int[] bfs = graph.backwardVisit(dist[j].index)
-								.getFirstArray();
-						vis++;
-						int beccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-						// Update maximum found eccentricity if necessary
-						if (beccj > Biu) {
-							Biu = beccj;
-						}
-					}
 					j = j - 1;
-					// Optimization: it is useless going on since we have found
-					// a lower bound equal to the upper bound
-					if (Biu == ub) {
-						while (j >= 0 && dist[j].dist == dist[i].dist) {
-							j = j - 1;
-						}
-						break;
-					}
 				}
+				// The nodes from j + 1 to i are in the fringe: the visits stop
+				// as soon as we have found a lower bound equal to the upper
+				// bound
+				int Biu = fv.max(j + 1, i + 1, lb, ub);
 				// If the current maximum eccentricity is greater than twice the
 				// distance immediately smaller than the current one, then
 				// we have found the diameter
@@ -275,7 +269,7 @@ public class WeightedIFub {
 			long[] rst = new long[4];
 			rst[0] = l;
 			rst[1] = ub;
-			rst[2] = vis;
+			rst[2] = vis + fv.getVisits();
 			long endTime = System.currentTimeMillis();
 			rst[3] = endTime - startTime;
 			return rst;
@@ -287,7 +281,23 @@ public class WeightedIFub {
 					.info("======= Java Exception: if you want you can report it\n"
 							+ sw + "=======");
 			return null;
+		} finally {
+			if (fv != null) {
+				fv.shutdown();
+			}
+		}
+	}
+
+	/*
+	 * Set the number of threads visiting the nodes of each fringe in parallel
+	 * (see IFub.setThreads).
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"The number of threads must be positive");
 		}
+		this.threads = threads;
 	}
 
 	/*
@@ -298,7 +308,8 @@ public class WeightedIFub {
 	 * of the lower and the upper bounds, the number of BFSes executed, and the
 	 * execution time (in milliseconds).
 	 */
-	public long[] undirected(ArrayGraph graph, int k) {
+	public long[] undirected(final ArrayGraph graph, int k) {
+		FringeVisits fv = null;
 		try {
 			long startTime = System.currentTimeMillis();
 			int n = graph.getN();
@@ -315,11 +326,19 @@ public class WeightedIFub {
 			// Create array of distances that will be sorted in nondecreasing
 			// way
 			// (differently from the paper we admit repeated values)
-			Distance[] dist = new Distance[n];
+			final Distance[] dist = new Distance[n];
 			for (int i = 0; i < n; i++) {
 				dist[i] = new Distance(i, resu[i]);
 			}
 			quickSort(dist, 0, n - 1);
+			// The Dijkstras from the nodes of a fringe (a range of dist) are
+			// executed by means of the threads
+			fv = new FringeVisits(graph, threads) {
+				int eccentricity(int j, VisitWorkspace ws, int ub, int t) {
+					// Node j is in Bdi(u)
+					return graph.eccentricity(dist[j].index, ws, ub, t);
+				}
+			};
 			// Set i equal to the index of the greatest distance
 			int i = n - 1;
 			// Initialize lower bound
@@ -330,27 +349,14 @@ public class WeightedIFub {
 			// Initialize upper bound
 			int ub = 2 * dist[n - 1].dist;
 			while ((ub - lb) > k) {
-				int Biu = lb;
 				int j = i;
 				while (j >= 0 && dist[j].dist == dist[i].dist) {
-					// Node j is in Bdi(u)
-					int[] bfs = graph.visit(dist[j].index).getFirstArray();
-					vis++;
-					int eccj = bfs[ArrayUtils.getIndexOfMax(bfs)];
-					// Update maximum found eccentricity if necessary
-					if (eccj > Biu) {
-						Biu = eccj;
-					}
 					j = j - 1;
-					// Optimization: it is useless going on since we have found
-					// a lower bound equal to the upper bound
-					if (Biu == ub) {
-						while (j >= 0 && dist[j].dist == dist[i].dist) {
-							j = j - 1;
-						}
-						break;
-					}
 				}
+				// The nodes from j + 1 to i are in the fringe: the visits stop
+				// as soon as we have found a lower bound equal to the upper
+				// bound
+				int Biu = fv.max(j + 1, i + 1, lb, ub);
 				// If the current maximum eccentricity is greater than twice the
 				// distance immediately smaller than the current one, then
 				// we have found the diameter
@@ -368,7 +374,7 @@ public class WeightedIFub {
 			long[] rst = new long[4];
 			rst[0] = lb;
 			rst[1] = ub;
-			rst[2] = vis;
+			rst[2] = vis + fv.getVisits();
 			long endTime = System.currentTimeMillis();
 			rst[3] = endTime - startTime;
 			return rst;
@@ -380,6 +386,10 @@ public class WeightedIFub {
 					.info("======= Java Exception: if you want you can report it\n"
 							+ sw + "=======");
 			return null;
+		} finally {
+			if (fv != null) {
+				fv.shutdown();
+			}
 		}
 	}
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2012, LASAGNE and/or its affiliates. All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * - Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ * 
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * 
+ * - Neither the name of LASAGNE or the names of its contributors may be used to
+ * endorse or promote products derived from this software without specific prior
+ * written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package lasagne.utilities;
+
+/*
+ * This class implements a hash map from int keys to non-negative int values by
+ * means of open addressing with linear probing. Differently from a HashMap of
+ * Integer objects, keys and values are stored in two primitive arrays, so that
+ * no object is created for each entry.
+ */
+public class IntHashMap {
+	private int[] keys;
+	private int[] values;
+	private int size;
+	private int mask;
+
+	public IntHashMap() {
+		this(16);
+	}
+
+	public IntHashMap(int expectedSize) {
+		int capacity = 16;
+		while (capacity < 2L * expectedSize && capacity < (1 << 30)) {
+			capacity = capacity * 2;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new int[capacity];
+		values = new int[capacity];
+		for (int i = 0; i < capacity; i++) {
+			values[i] = -1;
+		}
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	/*
+	 * Return the value associated with key k, or -1 if k is not in the map.
+	 */
+	public int get(int k) {
+		int i = hash(k) & mask;
+		while (values[i] != -1) {
+			if (keys[i] == k) {
+				return values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int hash(int k) {
+		int h = k * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/*
+	 * Associate value v (which must be non-negative) with key k, if k is not
+	 * already in the map. Return the value associated with k before the
+	 * invocation, or -1 if k was not in the map.
+	 */
+	public int putIfAbsent(int k, int v) {
+		int i = hash(k) & mask;
+		while (values[i] != -1) {
+			if (keys[i] == k) {
+				return values[i];
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = k;
+		values[i] = v;
+		size = size + 1;
+		if (2 * size > keys.length) {
+			rehash();
+		}
+		return -1;
+	}
+
+	private void rehash() {
+		int[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(2 * oldKeys.length);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != -1) {
+				putIfAbsent(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+}